@@ -144,7 +144,13 @@ public class UNOConverter {
 	 * @throws IOException 
 	 */
 	public void convert(Document dom) throws IOException {
-		writeFiles(converter.convert(dom, Misc.makeFileName(getFileName(sURL)),true));
+		ConverterResult result = converter.convert(dom, Misc.makeFileName(getFileName(sURL)),true);
+		try {
+			writeFiles(result);
+		}
+		finally {
+			result.close();
+		}
 	}
 	
 	/** Convert a document given by an XInputStream
@@ -154,7 +160,13 @@ public class UNOConverter {
 	 */
 	public void convert(XInputStream xis) throws IOException {
 		InputStream is = new XInputStreamToInputStreamAdapter(xis);
-		writeFiles(converter.convert(is, Misc.makeFileName(getFileName(sURL))));
+		ConverterResult result = converter.convert(is, Misc.makeFileName(getFileName(sURL)));
+		try {
+			writeFiles(result);
+		}
+		finally {
+			result.close();
+		}
 	}
 	
 	private void writeFiles(ConverterResult result) throws IOException {
@@ -302,6 +302,9 @@ public final class Application {
                 System.out.println("    "+e.getMessage());
                 System.exit(1);
             }
+            finally {
+                dataOut.close();
+            }
         
         }
 		
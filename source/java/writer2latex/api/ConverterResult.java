@@ -128,5 +128,12 @@ public interface ConverterResult {
      *  		could not be written
      */
     public void write(File dir) throws IOException;
+    
+    /** Release the resources held by the <code>ConverterResult</code>, such as temporary files.
+     *  This should be called when all files have been written; the files cannot be written afterwards.
+     *  The default implementation does nothing.
+     */
+    public default void close() {
+    }
 
 }
@@ -172,6 +172,9 @@ public abstract class BatchConverterBase implements BatchConverter {
             handler.endFile(infile.getPath(),false);
             return null;
         }
+        finally {
+            dataOut.close();
+        }
         
         handler.endFile(infile.getPath(),true);
 
@@ -30,6 +30,7 @@ import java.io.OutputStream;
 import java.io.IOException;
 
 import writer2latex.api.OutputFile;
+import writer2latex.office.EmbeddedBinaryObject;
 
 
 /** This class is used to represent a binary graphics document to be included in the converter result.
@@ -50,6 +51,9 @@ public class BinaryGraphicsDocument implements OutputFile {
     private int nOff = 0;
     private int nLen = 0;
     
+    // Source of an embedded image which is passed through unchanged
+    private EmbeddedBinaryObject source = null;
+    
     /**Constructs a new graphics document.
      * Until data is added using the <code>read</code> methods, the document is considered a link to
      * the image given by the file name.
@@ -105,6 +109,20 @@ public class BinaryGraphicsDocument implements OutputFile {
         this.nOff = nOff;
         this.nLen = nLen;
         this.bAcceptedFormat = bIsAcceptedFormat;
+        this.source = null;
+    }
+    
+    /** Set image contents to the data of an embedded object. The data is not read until it is needed,
+     *  and {@link #write(OutputStream)} copies it directly from the source document, so that an image
+     *  which is passed through unchanged is never held in memory.
+     * 
+     * @param source the embedded object containing the image data
+     * @param bIsAcceptedFormat flag to indicate that the format of the image is acceptable for the converter
+     */
+    public void setData(EmbeddedBinaryObject source, boolean bIsAcceptedFormat) {
+        this.blob = null;
+        this.source = source;
+        this.bAcceptedFormat = bIsAcceptedFormat;
     }
     
     /** Does this <code>BinaryGraphicsDocument</code> represent a linked image?
@@ -112,7 +130,7 @@ public class BinaryGraphicsDocument implements OutputFile {
      * @return true if so
      */
     public boolean isLinked() {
-    	return blob==null && !bRecycled;
+    	return blob==null && source==null && !bRecycled;
     }
     
     /** Is this image in an acceptable format for the converter?
@@ -123,11 +141,18 @@ public class BinaryGraphicsDocument implements OutputFile {
     	return bAcceptedFormat;
     }
     
-    /** Get the data of the image
+    /** Get the data of the image. If the data is taken from an embedded object, it is read at this point.
      * 
      * @return the image data as a byte array - or null if this is a linked image
      */
     public byte[] getData() {
+    	if (source!=null) {
+    		byte[] data = source.getBinaryData();
+    		source = null;
+    		if (data!=null) {
+    			setData(data,bAcceptedFormat);
+    		}
+    	}
     	return blob;
     }
     
@@ -141,7 +166,10 @@ public class BinaryGraphicsDocument implements OutputFile {
      * @throws  IOException  If any I/O error occurs.
      */
     public void write(OutputStream os) throws IOException {
-    	if (blob!=null) {
+    	if (source!=null) {
+    		source.write(os);
+    	}
+    	else if (blob!=null) {
     		os.write(blob, nOff, nLen);
     	}
     }
@@ -26,8 +26,8 @@
 
 package writer2latex.base;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.IOException;
@@ -93,12 +93,21 @@ public abstract class ConverterBase implements Converter {
     public void readResource(File file, String sFileName, String sMediaType) throws IOException { }
 
     public ConverterResult convert(File source, String sTargetFileName) throws FileNotFoundException,IOException {
-        return convert(new FileInputStream(source), sTargetFileName);
+        // Read document
+        odDoc = new OfficeDocument();
+        odDoc.setCompactDOM(compactDOM());
+        odDoc.setMemoryBudget(memoryBudget());
+        odDoc.setStreamContent(streamContent());
+        odDoc.read(source);
+        return convert(sTargetFileName,true);
     }
 
     public ConverterResult convert(InputStream is, String sTargetFileName) throws IOException {
         // Read document
         odDoc = new OfficeDocument();
+        odDoc.setCompactDOM(compactDOM());
+        odDoc.setMemoryBudget(memoryBudget());
+        odDoc.setStreamContent(streamContent());
         odDoc.read(is);
         return convert(sTargetFileName,true);
     }
@@ -125,13 +134,51 @@ public abstract class ConverterBase implements Converter {
         	metaData.setLanguage(ofr.getMajorityLanguage());
         }
 		
-        convertInner();
+        // The source document must be available until the result has been written (passed-through
+        // images are copied from the source), hence the temporary files are deleted when the result is closed
+        final OfficeDocument sourceDoc = odDoc;
+        converterResult.addResource(new Closeable() {
+        	public void close() {
+        		sourceDoc.dispose();
+        	}
+        });
+        boolean bSuccess = false;
+        try {
+        	convertInner();
+        	bSuccess = true;
+        }
+        finally {
+        	if (bSuccess) {
+        		odDoc.close();
+        	}
+        	else {
+        		converterResult.close();
+        	}
+        }
         
         return converterResult;
     }
 	
     // The subclass must provide the implementation
     public abstract void convertInner() throws IOException;
+    
+    // A subclass which is able to convert the text body one element at a time should override this
+    // (see OfficeDocument.setStreamContent)
+    protected boolean streamContent() {
+        return false;
+    }
+    
+    // A subclass should override this to read the source document into a compact DOM tree,
+    // typically depending on the configuration (see OfficeDocument.setCompactDOM)
+    protected boolean compactDOM() {
+        return false;
+    }
+    
+    // A subclass should override this to limit the memory used to hold the files of a package document
+    // read from a stream, typically depending on the configuration (see OfficeDocument.setMemoryBudget)
+    protected long memoryBudget() {
+        return -1;
+    }
 
     public MetaData getMetaData() { return metaData; }
     
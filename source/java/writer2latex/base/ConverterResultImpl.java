@@ -26,6 +26,7 @@
 
 package writer2latex.base;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -45,6 +46,9 @@ public class ConverterResultImpl implements ConverterResult {
 	
 	private List<OutputFile> files;
 	
+	// Resources (such as temporary files) used by the output files
+	private List<Closeable> resources = new Vector<Closeable>();
+	
 	private List<ContentEntry> content; 
 	private ContentEntry titlePageFile;
 	private ContentEntry textFile;
@@ -70,6 +74,7 @@ public class ConverterResultImpl implements ConverterResult {
      *  objects from this class.  This allows reuse of a <code>ConvertResult</code> object.
      */
     public void reset() {
+        close();
         files = new Vector<OutputFile>();
         content = new Vector<ContentEntry>();
         titlePageFile = null;
@@ -84,6 +89,27 @@ public class ConverterResultImpl implements ConverterResult {
         nMasterCount = 0;
 	}
 
+    /** Adds a resource used by the output files. The resource is closed when this
+     *  <code>ConverterResult</code> is closed or reset.
+     * 
+     *  @param resource the resource
+     */
+    public void addResource(Closeable resource) {
+    	resources.add(resource);
+    }
+    
+    public void close() {
+    	for (Closeable resource : resources) {
+    		try {
+    			resource.close();
+    		}
+    		catch (IOException e) {
+    			// Nothing to do about that
+    		}
+    	}
+    	resources.clear();
+    }
+
     /** Adds an <code>OutputFile</code> to the list
      *
      *  @param  file  The <code>OutputFile</code> to add.
@@ -53,9 +53,13 @@ import writer2latex.util.Misc;
  *  The images are returned as <code>BinaryGraphicsDocument</code>.
  *  The image converter can be configured as destructive. In this case, the returned
  *  graphics documents will contain the only reference to the image (the original data
- *  will be removed).
+ *  will be removed). Images from the package which are not converted are passed through unchanged:
+ *  Their data is copied directly from the package when the graphics document is written.
  */
 public final class ImageConverter {
+	// The number of bytes needed to determine the type of an image
+	private static final int HEADER_SIZE = 512;
+	
 	private OfficeReader ofr;
 	private boolean bDestructive;
 
@@ -200,6 +204,7 @@ public final class ImageConverter {
         String sExt = null;
     	String sMIME = null;
     	byte[] blob = null;
+    	EmbeddedBinaryObject object = null;
     	String sId = null;
     	
     	// First try to extract the image using the xlink:href attribute
@@ -216,18 +221,15 @@ public final class ImageConverter {
 	            if (sPath.startsWith("./")) { sPath = sPath.substring(2); }
 	            EmbeddedObject obj = ofr.getEmbeddedObject(sPath);
 	            if (obj!=null && obj instanceof EmbeddedBinaryObject) {
-	                EmbeddedBinaryObject object = (EmbeddedBinaryObject) obj;
-	                blob = object.getBinaryData();
+	                object = (EmbeddedBinaryObject) obj;
 	                sMIME = object.getType();
 	                if (sMIME.length()==0) {
 	                    // If the manifest provides a media type, trust that
-	                    // Otherwise determine it by byte inspection
-	                	sMIME = MIMETypes.getMagicMIMEType(blob);
+	                    // Otherwise determine it by byte inspection (which only needs the first bytes)
+	                	byte[] header = object.getBinaryHeader(HEADER_SIZE);
+	                	sMIME = header!=null ? MIMETypes.getMagicMIMEType(header) : "";
 	                }
 	            	sExt = MIMETypes.getFileExtension(sMIME);
-	            	if (bDestructive) {
-	            		object.dispose();
-	            	}
 	            	// We got an image, define ID for recycling
 	            	sId = sHref;
 	            }
@@ -243,7 +245,7 @@ public final class ImageConverter {
     	}
         
     	// If there is no suitable xlink:href attribute, the image must be contained in an office:binary-element as base64
-    	if (blob==null) {
+    	if (object==null) {
 	        Node obd = Misc.getChildByTagName(node,XMLString.OFFICE_BINARY_DATA);
 	        if (obd!=null) {
 	            StringBuilder buf = new StringBuilder();
@@ -278,6 +280,7 @@ public final class ImageConverter {
         // Is this an EPS file embedded in an SVM file?
         // (This case is obsolete, but kept for the sake of old documents)
         if (bExtractEPS && MIMETypes.SVM.equals(sMIME)) {
+        	if (blob==null && (blob = getBinaryData(object))==null) { return null; }
             // Look for postscript:
             int[] offlen = new int[2];
             if (SVMReader.readSVM(blob,offlen)) {
@@ -295,6 +298,7 @@ public final class ImageConverter {
         // is not in an accepted format AND the converter knows how to
         // convert it - try to convert...
         if (gcv!=null && !isAcceptedFormat(sMIME) && sDefaultFormat!=null) {
+        	if (blob==null && (blob = getBinaryData(object))==null) { return null; }
         	byte[] newBlob = null;
             String sTargetMIME = null;
 
@@ -320,7 +324,13 @@ public final class ImageConverter {
         if (isAcceptedFormat(sMIME) || bAcceptOtherFormats) {
         	String sFileName = sName+sExt;
             BinaryGraphicsDocument bgd = new BinaryGraphicsDocument(sFileName,sMIME);
-            bgd.setData(blob,isAcceptedFormat(sMIME));
+            if (blob!=null) {
+            	bgd.setData(blob,isAcceptedFormat(sMIME));
+            }
+            else {
+            	// The image is passed through unchanged, and is copied directly from the source document
+            	bgd.setData(object,isAcceptedFormat(sMIME));
+            }
             if (sId!=null) {
         		recycledImages.put(sId, new BinaryGraphicsDocument(bgd));
             }
@@ -339,6 +349,15 @@ public final class ImageConverter {
     	return null;
     }
     
+    // Read the data of an embedded image which cannot be passed through unchanged
+    private byte[] getBinaryData(EmbeddedBinaryObject object) {
+    	byte[] blob = object.getBinaryData();
+    	if (bDestructive) {
+    		object.dispose();
+    	}
+    	return blob;
+    }
+    
     // Create a fingerprint of a blob. The fingerprint concatenates the MD5 hash with the first 10 bytes of the blob.
     private String createId(byte[] blob) {
     	MessageDigest md;
@@ -26,6 +26,8 @@
 
 package writer2latex.epub;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -49,16 +51,28 @@ public final class EPUBConverter extends Xhtml11Converter {
     	return createPackage(xhtmlResult,sTargetFileName);
     }
     
+    @Override public ConverterResult convert(File source, String sTargetFileName) throws IOException {
+    	setOPS(true);
+    	ConverterResult xhtmlResult = super.convert(source, "chapter");
+    	return createPackage(xhtmlResult,sTargetFileName);
+    }
+    
     @Override public ConverterResult convert(org.w3c.dom.Document dom, String sTargetFileName, boolean bDestructive) throws IOException {
     	setOPS(true);
     	ConverterResult xhtmlResult = super.convert(dom, "chapter", bDestructive);
     	return createPackage(xhtmlResult,sTargetFileName);    	
     }
     
-    private ConverterResult createPackage(ConverterResult xhtmlResult, String sTargetFileName) {
+    private ConverterResult createPackage(final ConverterResult xhtmlResult, String sTargetFileName) {
     	ConverterResultImpl epubResult = new ConverterResultImpl();
     	epubResult.addDocument(new EPUBWriter(xhtmlResult,sTargetFileName,2,getXhtmlConfig()));
     	epubResult.setMetaData(xhtmlResult.getMetaData());
+    	// The package is written from the XHTML result, which must be closed along with the package
+    	epubResult.addResource(new Closeable() {
+    		public void close() {
+    			xhtmlResult.close();
+    		}
+    	});
     	return epubResult;
     }
 
@@ -26,7 +26,7 @@
 
 package writer2latex.epub;
 
-import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Iterator;
@@ -142,12 +142,17 @@ public class EPUBWriter implements OutputFile {
 	}
 	
 	private void writeZipEntry(OutputFile file, ZipOutputStream zos) throws IOException {
-		// Unfortunately we cannot simply do file.write(zos) because the write method of OutputFile
-		// closes the OutputStream. Hence this suboptimal solution
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		file.write(baos);
-		byte[] content = baos.toByteArray();
-		zos.write(content, 0, content.length);
+		// We cannot simply do file.write(zos) because the write method of OutputFile may
+		// close the OutputStream. Hence we shield the ZipOutputStream from being closed
+		file.write(new FilterOutputStream(zos) {
+			@Override public void write(byte[] b, int nOff, int nLen) throws IOException {
+				out.write(b, nOff, nLen);
+			}
+			
+			@Override public void close() throws IOException {
+				flush();
+			}
+		});
 	}
 
 }
@@ -171,7 +171,7 @@ class BibConverter extends ConverterHelper {
            	// Convert text
     		ldp.append(ba.getBefore());
 	        palette.getI18n().pushSpecialTable(palette.getCharSc().getFontName(style));
-    		ldp.append(palette.getI18n().convert(sText, false, elementContext.getLang()));
+    		palette.getI18n().convert(sText, false, elementContext.getLang(), ldp);
             palette.getI18n().popSpecialTable();
     		ldp.append(ba.getAfter());    		
     	}
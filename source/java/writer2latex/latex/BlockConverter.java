@@ -26,14 +26,16 @@
 
 package writer2latex.latex;
 
+import java.io.IOException;
+
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import writer2latex.latex.util.Context;
 import writer2latex.latex.util.StyleMap;
 import writer2latex.office.OfficeReader;
 import writer2latex.office.XMLString;
+import writer2latex.util.ElementHandler;
 import writer2latex.util.Misc;
 
 /**
@@ -62,169 +64,226 @@ public class BlockConverter extends ConverterHelper {
      * @param oc the current context
      */
     public void traverseBlockText(Element node, LaTeXDocumentPortion ldp, Context oc) {
-        Context ic = (Context) oc.clone();
-
-        // The current paragraph block:
-        StyleMap blockMap = config.getParBlockStyleMap();
-        String sBlockName = null;
-
-        if (node.hasChildNodes()) {
-            NodeList list = node.getChildNodes();
-            int nLen = list.getLength();
-
-            for (int i = 0; i < nLen; i++) {
-                Node childNode = list.item(i);
+        BlockState state = new BlockState(ldp,oc);
+        Node child = node.getFirstChild();
+        while (child!=null) {
+            child = handleBlockNode(child,state);
+        }
+        endBlockText(state);
+    }
+    
+    /** <p> Traverse the text body of a document, which is read on demand
+     * (see {@link OfficeReader#isContentStreamed()}).
+     * Each top level element is converted when the following element has been read
+     * (which may be needed as a caption), and is then removed from the content element.
+     * The LaTeX code is spooled after each element.</p>
+     * @param node The content element
+     * @param ldp the <code>SpooledLaTeXDocumentPortion</code> to which
+     * LaTeX code should be added
+     * @param oc the current context
+     * @throws IOException if an error occurs reading the document or writing the LaTeX code
+     */
+    public void streamBlockText(final Element node, final SpooledLaTeXDocumentPortion ldp, Context oc) throws IOException {
+        final BlockState state = new BlockState(ldp,oc);
+        ofr.streamContent(new ElementHandler() {
+            public void handleElement(Element element) throws IOException {
+                if (state.next==null) { state.next = element; }
+                while (state.next!=null && state.next.getNextSibling()!=null) {
+                    state.next = handleBlockNode(state.next,state);
+                }
+                // Remove the converted elements
+                while (node.getFirstChild()!=state.next) {
+                    node.removeChild(node.getFirstChild());
+                }
+                ldp.spool();
+            }
+        });
+        while (state.next!=null) {
+            state.next = handleBlockNode(state.next,state);
+        }
+        endBlockText(state);
+        while (node.hasChildNodes()) {
+            node.removeChild(node.getFirstChild());
+        }
+    }
+    
+    // Handle a node in block text and return the next node to handle
+    private Node handleBlockNode(Node childNode, BlockState state) {
+        LaTeXDocumentPortion ldp = state.ldp;
+        Context oc = state.oc;
+        Context ic = state.ic;
+        Node next = childNode.getNextSibling();
 				
-                if (childNode.getNodeType() == Node.ELEMENT_NODE) {
-                    Element child = (Element)childNode;
-                    String sTagName = child.getTagName();
+        if (childNode.getNodeType() == Node.ELEMENT_NODE) {
+            Element child = (Element)childNode;
+            String sTagName = child.getTagName();
 					
-                    // Start/End a paragraph block (not in tables)
-                    if (!ic.isInTable()) {
-                        if (sTagName.equals(XMLString.TEXT_P)) {
-                            String sStyleName = ofr.getParStyles().getDisplayName(child.getAttribute(XMLString.TEXT_STYLE_NAME));
-                            if (sBlockName!=null && !blockMap.isNext(sBlockName,sStyleName)) {
-                                // end current block
-                                String sAfter = blockMap.getAfter(sBlockName);
-                                if (sAfter.length()>0) ldp.append(sAfter).nl();
-                                sBlockName = null;
-                                ic.setVerbatim(false);
-                            }
-                            if (sBlockName==null && blockMap.contains(sStyleName)) {
-                                // start a new block
-                                sBlockName = sStyleName;
-                                String sBefore = blockMap.getBefore(sBlockName);
-                                if (sBefore.length()>0) ldp.append(sBefore).nl();
-                                ic.setVerbatim(blockMap.getVerbatim(sStyleName));
-                            }
-                        }
-                        else if (sBlockName!=null) {
-                            // non-paragraph: end current block
-                            String sAfter = blockMap.getAfter(sBlockName);
-                            if (sAfter.length()>0) ldp.append(sAfter).nl();
-                            sBlockName = null;
-                            ic.setVerbatim(false);
-                        }
+            // Start/End a paragraph block (not in tables)
+            if (!ic.isInTable()) {
+                if (sTagName.equals(XMLString.TEXT_P)) {
+                    String sStyleName = ofr.getParStyles().getDisplayName(child.getAttribute(XMLString.TEXT_STYLE_NAME));
+                    if (state.sBlockName!=null && !state.blockMap.isNext(state.sBlockName,sStyleName)) {
+                        // end current block
+                        String sAfter = state.blockMap.getAfter(state.sBlockName);
+                        if (sAfter.length()>0) ldp.append(sAfter).nl();
+                        state.sBlockName = null;
+                        ic.setVerbatim(false);
                     }
+                    if (state.sBlockName==null && state.blockMap.contains(sStyleName)) {
+                        // start a new block
+                        state.sBlockName = sStyleName;
+                        String sBefore = state.blockMap.getBefore(state.sBlockName);
+                        if (sBefore.length()>0) ldp.append(sBefore).nl();
+                        ic.setVerbatim(state.blockMap.getVerbatim(sStyleName));
+                    }
+                }
+                else if (state.sBlockName!=null) {
+                    // non-paragraph: end current block
+                    String sAfter = state.blockMap.getAfter(state.sBlockName);
+                    if (sAfter.length()>0) ldp.append(sAfter).nl();
+                    state.sBlockName = null;
+                    ic.setVerbatim(false);
+                }
+            }
 					
-                    palette.getFieldCv().flushReferenceMarks(ldp,ic);
-                    palette.getIndexCv().flushIndexMarks(ldp,ic);
+            palette.getFieldCv().flushReferenceMarks(ldp,ic);
+            palette.getIndexCv().flushIndexMarks(ldp,ic);
 					
-                    palette.getInfo().addDebugInfo(child,ldp);
-
-                    // Basic block content; handle by this class
-                    if (sTagName.equals(XMLString.TEXT_P)) {
-                        // is this a caption?
-                        String sSequence = ofr.getSequenceName(child);
-                        if (ofr.isFigureSequenceName(sSequence)) {
-                            palette.getDrawCv().handleCaption(child,ldp,ic);
-                        }
-                        else if (ofr.isTableSequenceName(sSequence)) {
-                            // Next node *should* be a table
-                            if (i+1<nLen && Misc.isElement(list.item(i+1),XMLString.TABLE_TABLE)) {
-                                // Found table with caption above
-                                palette.getTableCv().handleTable((Element)list.item(++i),child,true,ldp,ic);
-                            }
-                            else {
-                                // Found lonely caption
-                                palette.getTableCv().handleCaption(child,ldp,ic);
-                            }
-                        }
-                        else {
-                            palette.getParCv().handleParagraph(child,ldp,ic,i==nLen-1);
-                        }
-                    }
+            palette.getInfo().addDebugInfo(child,ldp);
 
-                    else if(sTagName.equals(XMLString.TEXT_H)) {
-                        palette.getHeadingCv().handleHeading(child,ldp,ic);
+            // Basic block content; handle by this class
+            if (sTagName.equals(XMLString.TEXT_P)) {
+                // is this a caption?
+                String sSequence = ofr.getSequenceName(child);
+                if (ofr.isFigureSequenceName(sSequence)) {
+                    palette.getDrawCv().handleCaption(child,ldp,ic);
+                }
+                else if (ofr.isTableSequenceName(sSequence)) {
+                    // Next node *should* be a table
+                    if (next!=null && Misc.isElement(next,XMLString.TABLE_TABLE)) {
+                        // Found table with caption above
+                        palette.getTableCv().handleTable((Element)next,child,true,ldp,ic);
+                        next = next.getNextSibling();
                     }
-                    
-                    else if (sTagName.equals(XMLString.TEXT_LIST)) { // oasis
-                        palette.getListCv().handleList(child,ldp,ic);
+                    else {
+                        // Found lonely caption
+                        palette.getTableCv().handleCaption(child,ldp,ic);
                     }
+                }
+                else {
+                    palette.getParCv().handleParagraph(child,ldp,ic,next==null);
+                }
+            }
 
-                    else if (sTagName.equals(XMLString.TEXT_UNORDERED_LIST)) {
-                    	palette.getListCv().handleList(child,ldp,ic);
-                    }
+            else if(sTagName.equals(XMLString.TEXT_H)) {
+                palette.getHeadingCv().handleHeading(child,ldp,ic);
+            }
                     
-                    else if (sTagName.equals(XMLString.TEXT_ORDERED_LIST)) {
-                    	palette.getListCv().handleList(child,ldp,ic);
-                    }
-                    else if (sTagName.equals(XMLString.TABLE_TABLE)) {
-                        // Next node *could* be a caption
-                        if (i+1<nLen && Misc.isElement(list.item(i+1),XMLString.TEXT_P) &&
-                            ofr.isTableSequenceName(ofr.getSequenceName((Element)list.item(i+1)))) {
-                            // Found table with caption below
-                            palette.getTableCv().handleTable(child,(Element)list.item(++i),false,ldp,oc);
-                        }
-                        else {
-                            // Found table without caption
-                            palette.getTableCv().handleTable(child,null,false,ldp,oc);
-                        }
-                    }
+            else if (sTagName.equals(XMLString.TEXT_LIST)) { // oasis
+                palette.getListCv().handleList(child,ldp,ic);
+            }
 
-                    else if (sTagName.equals(XMLString.TABLE_SUB_TABLE)) {
-                        palette.getTableCv().handleTable(child,null,true,ldp,ic);
-                    }
+            else if (sTagName.equals(XMLString.TEXT_UNORDERED_LIST)) {
+            	palette.getListCv().handleList(child,ldp,ic);
+            }
+                    
+            else if (sTagName.equals(XMLString.TEXT_ORDERED_LIST)) {
+            	palette.getListCv().handleList(child,ldp,ic);
+            }
+            else if (sTagName.equals(XMLString.TABLE_TABLE)) {
+                // Next node *could* be a caption
+                if (next!=null && Misc.isElement(next,XMLString.TEXT_P) &&
+                    ofr.isTableSequenceName(ofr.getSequenceName((Element)next))) {
+                    // Found table with caption below
+                    palette.getTableCv().handleTable(child,(Element)next,false,ldp,oc);
+                    next = next.getNextSibling();
+                }
+                else {
+                    // Found table without caption
+                    palette.getTableCv().handleTable(child,null,false,ldp,oc);
+                }
+            }
 
-                    else if (sTagName.equals(XMLString.TEXT_SECTION)) {
-                        palette.getSectionCv().handleSection(child,ldp,ic);
-                    }
+            else if (sTagName.equals(XMLString.TABLE_SUB_TABLE)) {
+                palette.getTableCv().handleTable(child,null,true,ldp,ic);
+            }
 
-                    // Draw elements may appear in block context if they are
-                    // anchored to page
-                    else if (sTagName.startsWith("draw:")) {
-                        palette.getDrawCv().handleDrawElement(child,ldp,ic);
-                    }
+            else if (sTagName.equals(XMLString.TEXT_SECTION)) {
+                palette.getSectionCv().handleSection(child,ldp,ic);
+            }
+
+            // Draw elements may appear in block context if they are
+            // anchored to page
+            else if (sTagName.startsWith("draw:")) {
+                palette.getDrawCv().handleDrawElement(child,ldp,ic);
+            }
 					
-                    // Indexes
-                    else if (sTagName.equals(XMLString.TEXT_TABLE_OF_CONTENT)) {
-                        palette.getIndexCv().handleTOC(child,ldp,ic);
-                    }
+            // Indexes
+            else if (sTagName.equals(XMLString.TEXT_TABLE_OF_CONTENT)) {
+                palette.getIndexCv().handleTOC(child,ldp,ic);
+            }
 
-                    else if (sTagName.equals(XMLString.TEXT_ILLUSTRATION_INDEX)) {
-                        palette.getIndexCv().handleLOF(child,ldp,ic);
-                    }
+            else if (sTagName.equals(XMLString.TEXT_ILLUSTRATION_INDEX)) {
+                palette.getIndexCv().handleLOF(child,ldp,ic);
+            }
 
-                    else if (sTagName.equals(XMLString.TEXT_TABLE_INDEX)) {
-                        palette.getIndexCv().handleLOT(child,ldp,ic);
-                    }
+            else if (sTagName.equals(XMLString.TEXT_TABLE_INDEX)) {
+                palette.getIndexCv().handleLOT(child,ldp,ic);
+            }
 
-                    else if (sTagName.equals(XMLString.TEXT_OBJECT_INDEX)) {
-                        palette.getIndexCv().handleObjectIndex(child,ldp,ic);
-                    }
+            else if (sTagName.equals(XMLString.TEXT_OBJECT_INDEX)) {
+                palette.getIndexCv().handleObjectIndex(child,ldp,ic);
+            }
 
-                    else if (sTagName.equals(XMLString.TEXT_USER_INDEX)) {
-                        palette.getIndexCv().handleUserIndex(child,ldp,ic);
-                    }
+            else if (sTagName.equals(XMLString.TEXT_USER_INDEX)) {
+                palette.getIndexCv().handleUserIndex(child,ldp,ic);
+            }
 
-                    else if (sTagName.equals(XMLString.TEXT_ALPHABETICAL_INDEX)) {
-                        palette.getIndexCv().handleAlphabeticalIndex(child,ldp,ic);
-                    }
+            else if (sTagName.equals(XMLString.TEXT_ALPHABETICAL_INDEX)) {
+                palette.getIndexCv().handleAlphabeticalIndex(child,ldp,ic);
+            }
 
-                    else if (sTagName.equals(XMLString.TEXT_BIBLIOGRAPHY)) {
-                        palette.getBibCv().handleBibliography(child,ldp,ic);
-                    }
+            else if (sTagName.equals(XMLString.TEXT_BIBLIOGRAPHY)) {
+                palette.getBibCv().handleBibliography(child,ldp,ic);
+            }
 
-                    // Sequence declarations appear in the main text body (before the actual content)
-                    else if (sTagName.equals(XMLString.TEXT_SEQUENCE_DECLS)) {
-                        palette.getFieldCv().handleSequenceDecls(child);
-                    }
-                    // other tags are ignored
-                }
+            // Sequence declarations appear in the main text body (before the actual content)
+            else if (sTagName.equals(XMLString.TEXT_SEQUENCE_DECLS)) {
+                palette.getFieldCv().handleSequenceDecls(child);
             }
+            // other tags are ignored
         }
-
-        if (!oc.isInTable() && sBlockName!=null) {
+        return next;
+    }
+    
+    // Finish the traversal of block text
+    private void endBlockText(BlockState state) {
+        if (!state.oc.isInTable() && state.sBlockName!=null) {
             // end current block
-            String sAfter = blockMap.getAfter(sBlockName);
-            if (sAfter.length()>0) ldp.append(sAfter).nl();
-            sBlockName = null;
+            String sAfter = state.blockMap.getAfter(state.sBlockName);
+            if (sAfter.length()>0) state.ldp.append(sAfter).nl();
+            state.sBlockName = null;
+        }
+        palette.getFieldCv().flushReferenceMarks(state.ldp,state.ic);
+        palette.getIndexCv().flushIndexMarks(state.ldp,state.ic);
+    }
+    
+    // The state of a traversal of block text
+    private class BlockState {
+        LaTeXDocumentPortion ldp;
+        Context oc;
+        Context ic;
+        // The current paragraph block:
+        StyleMap blockMap = config.getParBlockStyleMap();
+        String sBlockName = null;
+        // The next node to handle (when streaming)
+        Node next = null;
+        
+        BlockState(LaTeXDocumentPortion ldp, Context oc) {
+            this.ldp = ldp;
+            this.oc = oc;
+            this.ic = (Context) oc.clone();
         }
-        palette.getFieldCv().flushReferenceMarks(ldp,ic);
-        palette.getIndexCv().flushIndexMarks(ldp,ic);
-
-
     }
    
-}
\ No newline at end of file
+}
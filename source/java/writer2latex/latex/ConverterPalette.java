@@ -119,6 +119,19 @@ public final class ConverterPalette extends ConverterBase {
     public Info getInfo() { return info; }
 	
 	
+    // The text body can be converted one element at a time
+    @Override protected boolean streamContent() {
+        return config.streamContent();
+    }
+    
+    @Override protected boolean compactDOM() {
+        return config.compactDOM();
+    }
+    
+    @Override protected long memoryBudget() {
+        return config.getMemoryBudget();
+    }
+	
     // fill out inner converter method
     public void convertInner() throws IOException {
         sTargetFileName = Misc.trimDocumentName(sTargetFileName,".tex");
@@ -196,15 +209,28 @@ public final class ConverterPalette extends ConverterBase {
         // Create main LaTeXDocumentPortions
         LaTeXDocumentPortion packages = new LaTeXDocumentPortion(false);
         LaTeXDocumentPortion declarations = new LaTeXDocumentPortion(false);
-        LaTeXDocumentPortion body = new LaTeXDocumentPortion(true);
+        LaTeXDocumentPortion body;
         
         // Traverse the content
         Element content = ofr.getContent();
-        blockCv.traverseBlockText(content,body,mainContext);
+        if (ofr.isContentStreamed()) {
+            // The text body is read and converted one element at a time, and the result is moved to a temporary file
+            SpooledLaTeXDocumentPortion spooledBody = new SpooledLaTeXDocumentPortion(config.getWrapLinesAfter(),"\n");
+            converterResult.addResource(spooledBody);
+            blockCv.streamBlockText(content,spooledBody,mainContext);
+            body = spooledBody;
+        }
+        else {
+            body = new LaTeXDocumentPortion(true);
+            blockCv.traverseBlockText(content,body,mainContext);
+        }
         noteCv.insertEndnotes(body);
 
         // Add declarations from our helpers
         i18n.appendDeclarations(packages,declarations);
+        if (config.debug() && config.getI18nCacheSize()>0) {
+            declarations.append("% i18n cache: "+i18n.getCacheHits()+" hits, "+i18n.getCacheMisses()+" misses").nl();
+        }
         colorCv.appendDeclarations(packages,declarations);
         noteCv.appendDeclarations(packages,declarations);
         charSc.appendDeclarations(packages,declarations);
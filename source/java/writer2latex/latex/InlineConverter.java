@@ -242,7 +242,7 @@ public class InlineConverter extends ConverterHelper {
                     		}
                     	}
                     	else { // Normal text
-             			   ldp.append(palette.getI18n().convert(s, false, oc.getLang()));
+             			   palette.getI18n().convert(s, false, oc.getLang(), ldp);
                     	}
                     }
                     break;
@@ -497,7 +497,7 @@ public class InlineConverter extends ConverterHelper {
             switch (nodeType) {
                 case Node.TEXT_NODE:
                     String s = childNode.getNodeValue();
-                    ldp.append(palette.getI18n().convert(s,true,oc.getLang()));
+                    palette.getI18n().convert(s,true,oc.getLang(),ldp);
                     break;
                         
                 case Node.ELEMENT_NODE:
@@ -613,7 +613,7 @@ public class InlineConverter extends ConverterHelper {
             int nLen = nl.getLength();
             for (int i=0; i<nLen; i++) {
                 if (nl.item(i).getNodeType()==Node.TEXT_NODE) {
-                    ldp.append(palette.getI18n().convert(nl.item(i).getNodeValue(),false,oc.getLang()));
+                    palette.getI18n().convert(nl.item(i).getNodeValue(),false,oc.getLang(),ldp);
                 }
             }
         }
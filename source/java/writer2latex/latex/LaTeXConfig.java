@@ -49,7 +49,7 @@ public class LaTeXConfig extends writer2latex.base.ConfigBase {
 	/////////////////////////////////////////////////////////////////////////
 	// I. Define items needed by ConfigBase
 	
-    protected int getOptionCount() { return 73; }
+    protected int getOptionCount() { return 77; }
     protected String getDefaultConfigPath() { return "/writer2latex/latex/config/"; } 
     
 	/////////////////////////////////////////////////////////////////////////
@@ -184,6 +184,10 @@ public class LaTeXConfig extends writer2latex.base.ConfigBase {
     private static final int SAVE_IMAGES_IN_SUBDIR = 70;
     private static final int OLD_MATH_COLORS = 71;
     private static final int DEBUG = 72;
+    private static final int STREAM_CONTENT = 73;
+    private static final int I18N_CACHE_SIZE = 74;
+    private static final int COMPACT_DOM = 75;
+    private static final int MEMORY_BUDGET = 76;
     
 	/////////////////////////////////////////////////////////////////////////
     // IV. Our options data
@@ -198,6 +202,10 @@ public class LaTeXConfig extends writer2latex.base.ConfigBase {
     private ComplexOption stringReplace;
     private ComplexOption mathSymbols;
     private String sCustomPreamble = "";
+    
+    // The string replace as a trie, and the string replace options it was built from
+    private ReplacementTrie stringReplaceTrie = null;
+    private Map<String,Map<String,String>> stringReplaceTrieSource = null;
 	
 	/////////////////////////////////////////////////////////////////////////
     // V. The rather long constructor setting all defaults
@@ -337,6 +345,20 @@ public class LaTeXConfig extends writer2latex.base.ConfigBase {
         options[SAVE_IMAGES_IN_SUBDIR] = new BooleanOption("save_images_in_subdir","false");
         options[OLD_MATH_COLORS] = new BooleanOption("old_math_colors","false");
         options[DEBUG] = new BooleanOption("debug","false");
+        options[STREAM_CONTENT] = new BooleanOption("stream_content","false");
+        options[I18N_CACHE_SIZE] = new IntegerOption("i18n_cache_size","0") {
+            public void setString(String sValue) {
+                super.setString(sValue);
+                nValue = Misc.getPosInteger(sValue,0);
+            }
+        };
+        options[COMPACT_DOM] = new BooleanOption("compact_dom","false");
+        options[MEMORY_BUDGET] = new IntegerOption("memory_budget","-1") {
+            public void setString(String sValue) {
+                super.setString(sValue);
+                nValue = "0".equals(sValue) ? 0 : Misc.getPosInteger(sValue,-1);
+            }
+        };
 
         // Complex options - heading map
         headingMap = addComplexOption("heading-map");
@@ -626,17 +648,38 @@ public class LaTeXConfig extends writer2latex.base.ConfigBase {
     	return map;
     }
 
-    // Return current string replace as a trie
-    public ReplacementTrie getStringReplace() {
-        ReplacementTrie trie = new ReplacementTrie();
+    // Return current string replace as a trie. The trie is shared and must not be modified by the caller.
+    // It is built again only if the string replace options have changed since the last call.
+    public synchronized ReplacementTrie getStringReplace() {
+        if (stringReplaceTrie==null || !isStringReplaceUnchanged()) {
+            ReplacementTrie trie = new ReplacementTrie();
+            Map<String,Map<String,String>> source = new HashMap<String,Map<String,String>>();
+            for (String sInput : stringReplace.keySet()) {
+            	Map<String,String> attributes = stringReplace.get(sInput);
+                String sLaTeXCode = attributes.get("latex-code");
+                String sFontenc = attributes.get("fontenc");
+                trie.put(sInput,sLaTeXCode!=null ? sLaTeXCode : "",
+                		 ClassicI18n.readFontencs(sFontenc!=null ? sFontenc : "any"));
+                source.put(sInput, new HashMap<String,String>(attributes));
+            }
+            stringReplaceTrie = trie;
+            stringReplaceTrieSource = source;
+        }
+        return stringReplaceTrie;
+    }
+    
+    // Test if the string replace options are the same as when the trie was built
+    // (the complex option is public, so it may have been modified by anyone)
+    private boolean isStringReplaceUnchanged() {
+        if (stringReplace.keySet().size()!=stringReplaceTrieSource.size()) {
+            return false;
+        }
         for (String sInput : stringReplace.keySet()) {
-        	Map<String,String> attributes = stringReplace.get(sInput);
-            String sLaTeXCode = attributes.get("latex-code");
-            String sFontenc = attributes.get("fontenc");
-            trie.put(sInput,sLaTeXCode!=null ? sLaTeXCode : "",
-            		 ClassicI18n.readFontencs(sFontenc!=null ? sFontenc : "any"));
+            if (!stringReplace.get(sInput).equals(stringReplaceTrieSource.get(sInput))) {
+                return false;
+            }
         }
-        return trie;
+        return true;
     }
     
     // Get the math symbols as a simple Map
@@ -664,6 +707,7 @@ public class LaTeXConfig extends writer2latex.base.ConfigBase {
     public boolean greekMath() { return ((BooleanOption) options[GREEK_MATH]).getValue(); }
     public boolean noPreamble() { return ((BooleanOption) options[NO_PREAMBLE]).getValue(); }
     public boolean noIndex() { return ((BooleanOption) options[NO_INDEX]).getValue(); }
+    public int getI18nCacheSize() { return ((IntegerOption) options[I18N_CACHE_SIZE]).getValue(); }
 	
     // Package options
     public boolean useOoomath() { return ((BooleanOption) options[USE_OOOMATH]).getValue(); }
@@ -744,6 +788,9 @@ public class LaTeXConfig extends writer2latex.base.ConfigBase {
     public boolean splitLinkedSections() { return ((BooleanOption) options[SPLIT_LINKED_SECTIONS]).getValue(); }
     public boolean splitToplevelSections() { return ((BooleanOption) options[SPLIT_TOPLEVEL_SECTIONS]).getValue(); }
     public boolean saveImagesInSubdir() { return ((BooleanOption) options[SAVE_IMAGES_IN_SUBDIR]).getValue(); }
+    public boolean streamContent() { return ((BooleanOption) options[STREAM_CONTENT]).getValue(); }
+    public boolean compactDOM() { return ((BooleanOption) options[COMPACT_DOM]).getValue(); }
+    public int getMemoryBudget() { return ((IntegerOption) options[MEMORY_BUDGET]).getValue(); }
 	
     // Compatibility options
     public boolean oldMathColors() { return ((BooleanOption) options[OLD_MATH_COLORS]).getValue(); }
@@ -92,6 +92,17 @@ public class LaTeXDocumentPortion {
         return this;
     }
     
+    /** Get the buffer holding the end of this portion. Text appended to the buffer becomes part of this
+     *  portion, exactly as if it was added with {@link #append(String)}. The buffer is only valid until
+     *  the next modification of the portion using any other method.
+     * 
+     * @return the buffer
+     */
+    public StringBuilder getBuffer() {
+        bEmpty = false;
+        return curText;
+    }
+    
     /** Add a newline to the end of this portion
      * 
      * @return a reference to this <code>LaTeXDocumentPortion</code>
@@ -220,6 +231,42 @@ public class LaTeXDocumentPortion {
         }
     }
 	
+    /** Write the complete lines of this portion to the output and remove them from this portion.
+     *  Text following the last newline is kept. Hence the total output is the same as if the
+     *  portion was written at once.
+     * 
+     * @param osw an <code>OutputStreamWriter</code> to write to
+     * @param nLineLen the line length after which automatic line breaks should occur if allowed (nLineLen=0 means no wrap)
+     * @param sNewline the newline character(s) to use
+     * @throws IOException if an exception occurs writing to to osw
+     */
+    protected void writeCompleteLines(OutputStreamWriter osw, int nLineLen, String sNewline) throws IOException {
+        int n = nodes.size();
+        for (int i=0; i<n; i++) {
+            if (nodes.get(i) instanceof LaTeXDocumentPortion) {
+                ((LaTeXDocumentPortion) nodes.get(i)).write(osw,nLineLen,sNewline);
+            }
+            else if (bWrap && nLineLen>0) {
+                writeBuffer((StringBuilder) nodes.get(i),osw,nLineLen,sNewline);
+            }
+            else {
+                writeBuffer((StringBuilder) nodes.get(i),osw,sNewline);
+            }
+        }
+        nodes.clear();
+        int nEnd = curText.lastIndexOf("\n")+1;
+        if (nEnd>0) {
+            StringBuilder lines = new StringBuilder(curText.substring(0,nEnd));
+            if (bWrap && nLineLen>0) {
+                writeBuffer(lines,osw,nLineLen,sNewline);
+            }
+            else {
+                writeBuffer(lines,osw,sNewline);
+            }
+            curText.delete(0,nEnd);
+        }
+    }
+	
     /** Return the content of this LaTeXDocumentPortion as a string
      * 
      *  @return a string representation of the <code>LaTeXDocumentPortion</code>
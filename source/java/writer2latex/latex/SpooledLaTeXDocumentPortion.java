@@ -0,0 +1,157 @@
+/************************************************************************
+ *
+ *  SpooledLaTeXDocumentPortion.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+package writer2latex.latex;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+
+/** This class represents a portion of a LaTeX document, which is moved to a temporary file while
+ *  it is being created. This is used to convert large documents without holding the complete LaTeX code
+ *  in memory. The temporary file is deleted when the portion is closed (or at the latest when the virtual
+ *  machine terminates).
+ */
+public class SpooledLaTeXDocumentPortion extends LaTeXDocumentPortion implements Closeable {
+	
+    private static final int BUFFERSIZE = 8192;
+	
+    private int nLineLen;
+    private String sNewline;
+    
+    private File spoolFile = null;
+    private OutputStreamWriter spool = null;
+
+    /** Construct a new empty <code>SpooledLaTeXDocumentPortion</code>. Lines may be wrapped on writing.
+     * 
+     * @param nLineLen the line length after which automatic line breaks should occur (nLineLen=0 means no wrap)
+     * @param sNewline the newline character(s) to use
+     */
+    public SpooledLaTeXDocumentPortion(int nLineLen, String sNewline) {
+        super(true);
+        this.nLineLen = nLineLen;
+        this.sNewline = sNewline;
+    }
+    
+    /** Move the complete lines of this portion to the temporary file
+     * 
+     * @throws IOException if an exception occurs writing the temporary file
+     */
+    public void spool() throws IOException {
+        if (spool==null) {
+            if (spoolFile==null) {
+                spoolFile = File.createTempFile("w2l", ".tex");
+                spoolFile.deleteOnExit();
+            }
+            spool = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(spoolFile,true),BUFFERSIZE),"UTF-8");
+        }
+        writeCompleteLines(spool,nLineLen,sNewline);
+    }
+
+    /** Write this portion to the output. The spooled part is written with the line length and newline
+     *  characters given to the constructor
+     * 
+     * @param osw an <code>OutputStreamWriter</code> to write to
+     * @param nLineLen the line length after which automatic line breaks should occur if allowed (nLineLen=0 means no wrap)
+     * @param sNewline the newline character(s) to use
+     * @throws IOException if an exception occurs writing to to osw
+     */
+    @Override public void write(OutputStreamWriter osw, int nLineLen, String sNewline) throws IOException {
+        if (spoolFile!=null) {
+            closeSpool();
+            InputStreamReader reader = new InputStreamReader(new FileInputStream(spoolFile),"UTF-8");
+            try {
+                char[] buffer = new char[BUFFERSIZE];
+                int nLen;
+                while ((nLen = reader.read(buffer))>0) {
+                    osw.write(buffer,0,nLen);
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        super.write(osw,nLineLen,sNewline);
+    }
+    
+    /** Return the content of this portion as a string (the spooled part includes automatic line breaks)
+     * 
+     *  @return a string representation of the <code>SpooledLaTeXDocumentPortion</code>
+     */
+    @Override public String toString() {
+        StringBuilder buf = new StringBuilder();
+        if (spoolFile!=null) {
+            try {
+                closeSpool();
+                InputStreamReader reader = new InputStreamReader(new FileInputStream(spoolFile),"UTF-8");
+                try {
+                    char[] buffer = new char[BUFFERSIZE];
+                    int nLen;
+                    while ((nLen = reader.read(buffer))>0) {
+                        buf.append(buffer,0,nLen);
+                    }
+                }
+                finally {
+                    reader.close();
+                }
+            }
+            catch (IOException e) {
+                // Cannot recover the spooled text
+            }
+        }
+        buf.append(super.toString());
+        return buf.toString();
+    }
+    
+    /** Delete the temporary file. The spooled part of the portion is lost, hence the portion
+     *  should not be written after this.
+     */
+    public void close() {
+        try {
+            closeSpool();
+        }
+        catch (IOException e) {
+            // Nothing to do about that, we are going to delete the file anyway
+        }
+        if (spoolFile!=null) {
+            spoolFile.delete();
+            spoolFile = null;
+        }
+    }
+    
+    private void closeSpool() throws IOException {
+        if (spool!=null) {
+            spool.close();
+            spool = null;
+        }
+    }
+
+}
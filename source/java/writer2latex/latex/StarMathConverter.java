@@ -25,6 +25,7 @@
 
 package writer2latex.latex;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
 
@@ -393,19 +394,42 @@ class SmTokenTableEntry{ // This is simply a struct
 }
 
 class SmTokenTable{
-    private SmTokenTableEntry[] table;
+    private Map<String,SmTokenTableEntry> index=new HashMap<String,SmTokenTableEntry>();
+    private Map<String,SmTokenTableEntry> foldedIndex=new HashMap<String,SmTokenTableEntry>();
     
-    SmTokenTable(SmTokenTableEntry[] table){this.table=table;}
+    SmTokenTable(SmTokenTableEntry[] table){
+        // Index the table backwards, such that the first entry wins if an identifier occurs more than once
+        for (int i=table.length-1; i>=0; i--){
+            index.put(table[i].sIdent, table[i]);
+            foldedIndex.put(foldCase(table[i].sIdent), table[i]);
+        }
+    }
     
     boolean lookup(String sIdent, boolean bIgnoreCase, SmToken token){
-        for (int i=0; i<table.length; i++){
-            if (bIgnoreCase ? table[i].sIdent.equalsIgnoreCase(sIdent) : table[i].sIdent.equals(sIdent)){
-                token.assign(table[i].eType, table[i].sLaTeX, table[i].eGroup1, table[i].eGroup2, table[i].nLevel);
-                return true;
-            }
+        SmTokenTableEntry entry = bIgnoreCase ? foldedIndex.get(foldCase(sIdent)) : index.get(sIdent);
+        if (entry!=null){
+            token.assign(entry.eType, entry.sLaTeX, entry.eGroup1, entry.eGroup2, entry.nLevel);
+            return true;
         }
         return false;
-    }   
+    }
+    
+    // Fold the case of a string: Two strings are equal ignoring case (as defined by String.equalsIgnoreCase)
+    // if and only if the folded strings are equal
+    private static String foldCase(String s){
+        int nLen=s.length();
+        for (int i=0; i<nLen; i++){
+            char c=s.charAt(i);
+            if (Character.toLowerCase(Character.toUpperCase(c))!=c){
+                char[] chars=s.toCharArray();
+                for (int j=i; j<nLen; j++){
+                    chars[j]=Character.toLowerCase(Character.toUpperCase(chars[j]));
+                }
+                return new String(chars);
+            }
+        }
+        return s;
+    }
     
     static final SmTokenTableEntry[] keywords=
         {new SmTokenTableEntry( "Im",Token.IM, "\\Im ", TGroup.STANDALONE, 5),
@@ -736,8 +760,8 @@ class SmToken{
 public final class StarMathConverter implements writer2latex.api.StarMathConverter {
 
     // Variables
-    private SmTokenTable keywords=new SmTokenTable(SmTokenTable.keywords);
-    private SmTokenTable symbols=new SmTokenTable(SmTokenTable.symbols);
+    private static final SmTokenTable keywords=new SmTokenTable(SmTokenTable.keywords);
+    private static final SmTokenTable symbols=new SmTokenTable(SmTokenTable.symbols);
     private LaTeXConfig config;
     private Map<String, String> configSymbols;
     private boolean bUseColor;
@@ -909,14 +933,14 @@ public final class StarMathConverter implements writer2latex.api.StarMathConvert
             return;
         }
         else if (buffer.peekChar()=='"'){ // Text
-            String sText="";
+            StringBuilder bufText=new StringBuilder();
             buffer.getChar();
             while (buffer.peekChar()!='"' && buffer.peekChar()!='\0'){
-                sText+=buffer.getChar(); // temporary...
+                bufText.append(buffer.getChar());
             }
             buffer.getChar();
             // TODO: Language should be inherited from surrounding text
-            curToken.assign(Token.TEXT, i18n.convert(sText,false,"en"), 5);
+            curToken.assign(Token.TEXT, i18n.convert(bufText.toString(),false,"en"), 5);
             return;
         }
         else if (buffer.peekChar()=='%'){ // Special
@@ -1068,28 +1092,25 @@ public final class StarMathConverter implements writer2latex.api.StarMathConvert
     ////////////////////////////////////////////////
     // Grammar
     
-    private String table(float fSize, Token eAlign){
-        StringBuilder bufTable=new StringBuilder();
-        String sLine=line(fSize,eAlign,true);
+    private void table(float fSize, Token eAlign, StringBuilder buf){
+        int nStart=buf.length();
+        line(fSize,eAlign,true,buf);
         if (curToken.eType==Token.NEWLINE){ // more than one line
-            bufTable.append("\\begin{gathered}").append(sLine);
+            buf.insert(nStart,"\\begin{gathered}");
             while (curToken.eType==Token.NEWLINE){
                 nextToken();
-                bufTable.append("\\\\");
-                sLine = line(fSize,eAlign,false);
-                if (sLine.length()>0 && sLine.charAt(0)=='[') { // Protect [ after \\
-                	bufTable.append("{}");
+                buf.append("\\\\");
+                int nLineStart=buf.length();
+                line(fSize,eAlign,false,buf);
+                if (buf.length()>nLineStart && buf.charAt(nLineStart)=='[') { // Protect [ after \\
+                	buf.insert(nLineStart,"{}");
                 }
-                bufTable.append(sLine);
             }
-            return bufTable.append("\\end{gathered}").toString();
-        }
-        else { // only one line
-            return sLine;
+            buf.append("\\end{gathered}");
         }
     }
     
-    private String align(float fSize, Token eAlign,boolean bUseAlignment,boolean bNeedNull){
+    private void align(float fSize, Token eAlign,boolean bUseAlignment,boolean bNeedNull, StringBuilder buf){
         // Alignment works very different in StarMath and LaTeX:
         // In LaTeX alignment is accomplished using suitable \hfill's in appropriate spots.
         // Hence we need to pass on the current alignment as a parameter to decide where to \hfill.
@@ -1105,251 +1126,278 @@ public final class StarMathConverter implements writer2latex.api.StarMathConvert
             nextToken();
         }
         if (bUseAlignment && eAlign==Token.ALIGNL){
+            expression(fSize,eAlign,buf);
             if (bNeedNull){
-                return expression(fSize,eAlign)+"\\hfill\\null ";
+                buf.append("\\hfill\\null ");
             }
             else {
-                return expression(fSize,eAlign)+"\\hfill ";
+                buf.append("\\hfill ");
             }
         }
         else if (bUseAlignment && eAlign==Token.ALIGNR){
-            return "\\hfill "+expression(fSize,eAlign);
+            buf.append("\\hfill ");
+            expression(fSize,eAlign,buf);
         }
         else { // center alignment (default!) or no alignment
-            return expression(fSize,eAlign);
+            expression(fSize,eAlign,buf);
         }
     }
     
-    private String line(float fSize, Token eAlign, boolean bFirstLine){
+    private void line(float fSize, Token eAlign, boolean bFirstLine, StringBuilder buf){
         if (curToken.eType!=Token.NEWLINE && curToken.eType!=Token.END){
             // Add implicit left alignment for expressions starting with text
             // (Note: Don't pass on this alignment to subexpressions!)
         	// This alignment is only added if there's more than one line!
             if (curToken.eType==Token.TEXT) {
-            	String sExpression = expression(fSize,eAlign);
+            	expression(fSize,eAlign,buf);
             	if (!bFirstLine || curToken.eType==Token.NEWLINE) {
-            		return sExpression+"\\hfill ";
-            	}
-            	else {
-            		return sExpression;
+            		buf.append("\\hfill ");
             	}
             }
             else {
-                return align(fSize,eAlign,true,false);
+                align(fSize,eAlign,true,false,buf);
             }
         }
         else { // empty line
-            return "{}"; // LaTeX doesn't like empty lines in gather
+            buf.append("{}"); // LaTeX doesn't like empty lines in gather
         }
     }
     
-    private String expression(float fSize, Token eAlign){
-        StringBuilder bufExpression=new StringBuilder().append(relation(fSize,eAlign));
+    private void expression(float fSize, Token eAlign, StringBuilder buf){
+        relation(fSize,eAlign,buf);
         while (curToken.nLevel>=5){
-            bufExpression.append(relation(fSize,eAlign));
+            relation(fSize,eAlign,buf);
         }
-        return bufExpression.toString();
     }
     
-    private String relation(float fSize, Token eAlign){
-        StringBuilder bufRelation=new StringBuilder().append(sum(fSize,eAlign));
+    private void relation(float fSize, Token eAlign, StringBuilder buf){
+        sum(fSize,eAlign,buf);
         while (tokenInGroup(TGroup.RELATION)){
             if (curToken.eType==Token.TRANSL) { bMultimapdotbothA=true; }
             else if (curToken.eType==Token.TRANSR) { bMultimapdotbothB=true; }
             else if (curToken.eType==Token.DEF) { bDefeq=true; }
-            bufRelation.append(opsubsup(fSize,eAlign)).append(sum(fSize,eAlign));
+            opsubsup(fSize,eAlign,buf);
+            sum(fSize,eAlign,buf);
         }
-        return bufRelation.toString();
     }
     
-    private String sum(float fSize, Token eAlign){
-        StringBuilder bufSum=new StringBuilder().append(product(fSize,eAlign));
+    private void sum(float fSize, Token eAlign, StringBuilder buf){
+        product(fSize,eAlign,buf);
         while (tokenInGroup(TGroup.SUM)){
-            bufSum.append(opsubsup(fSize,eAlign)).append(product(fSize,eAlign));
+            opsubsup(fSize,eAlign,buf);
+            product(fSize,eAlign,buf);
         }
-        return bufSum.toString();
     }
     
-    private String product(float fSize, Token eAlign){
-        String sProduct=power(fSize,eAlign);
+    private void product(float fSize, Token eAlign, StringBuilder buf){
+        // The product so far is the content of buf from this position
+        int nStart=buf.length();
+        power(fSize,eAlign,buf);
         while (tokenInGroup(TGroup.PRODUCT)){
             if (curToken.eType==Token.OVER){
                  nextToken();
-                 sProduct="\\frac"+groupsp(sProduct)+groupsp(power(fSize,eAlign));
+                 insertGroupsp(buf,nStart,"\\frac");
+                 int nGroup=beginGroup(buf);
+                 power(fSize,eAlign,buf);
+                 endGroupsp(buf,nGroup);
             } else if (curToken.eType==Token.BOPER){
                  nextToken();    
-                 sProduct+=special()+power(fSize,eAlign);
+                 buf.append(special());
+                 power(fSize,eAlign,buf);
             } else if (curToken.eType==Token.OVERBRACE){
                  nextToken();    
-                 sProduct="\\overbrace"+groupsp(sProduct)+"^"+group(power(fSize,eAlign));
+                 insertGroupsp(buf,nStart,"\\overbrace");
+                 buf.append("^");
+                 int nGroup=beginGroup(buf);
+                 power(fSize,eAlign,buf);
+                 endGroup(buf,nGroup);
             } else if (curToken.eType==Token.UNDERBRACE){    
                  nextToken();    
-                 sProduct="\\underbrace"+groupsp(sProduct)+"_"+group(power(fSize,eAlign));
+                 insertGroupsp(buf,nStart,"\\underbrace");
+                 buf.append("_");
+                 int nGroup=beginGroup(buf);
+                 power(fSize,eAlign,buf);
+                 endGroup(buf,nGroup);
             } else  if (curToken.eType==Token.WIDESLASH){
                  bWideslash=true;    
                  nextToken();    
-                 sProduct="\\wideslash"+groupsp(sProduct)+group(power(fSize,eAlign));
+                 insertGroupsp(buf,nStart,"\\wideslash");
+                 int nGroup=beginGroup(buf);
+                 power(fSize,eAlign,buf);
+                 endGroup(buf,nGroup);
             } else if (curToken.eType==Token.WIDEBACKSLASH){    
                  bWidebslash=true;    
                  nextToken();   
-                 sProduct="\\widebslash"+groupsp(sProduct)+group(power(fSize,eAlign));
+                 insertGroupsp(buf,nStart,"\\widebslash");
+                 int nGroup=beginGroup(buf);
+                 power(fSize,eAlign,buf);
+                 endGroup(buf,nGroup);
             } else {
-                 sProduct+=opsubsup(fSize,eAlign)+power(fSize,eAlign);
+                 opsubsup(fSize,eAlign,buf);
+                 power(fSize,eAlign,buf);
             }
         }
-        return sProduct;
-        
     }
     
-    private String tosub(String s){
-        return s!=null ? "_"+group(s) : "";
+    private StringBuilder tosub(StringBuilder buf, CharSequence s){
+        return s!=null ? group(buf.append("_"),s) : buf;
     }
     
-    private String tosup(String s){
-        return s!=null ? "^"+group(s) : "";
+    private StringBuilder tosup(StringBuilder buf, CharSequence s){
+        return s!=null ? group(buf.append("^"),s) : buf;
     }
     
-    private String subsup(float fSize, Token eAlign,String sBody, TGroup eActiveGroup){
-        // sBody is the string to attach scripts to
+    private void subsup(float fSize, Token eAlign, StringBuilder buf, int nBody, TGroup eActiveGroup){
+        // The content of buf from the position nBody is the body to attach scripts to
         // eActiveGroup must be TGroup.LIMIT or TGroup.POWER
-        // in the former case sBody must contain a large operator (sum, int...)
+        // in the former case the body must contain a large operator (sum, int...)
+        // The scripts are collected in separate buffers, as they are not converted in output order
         Token eScriptType;
-        String sLsub=null, sLsup=null, sCsub=null, sCsup=null, sRsub=null, sRsup=null;
+        StringBuilder bufLsub=null, bufLsup=null, bufCsub=null, bufCsup=null, bufRsub=null, bufRsup=null;
         while (tokenInGroup(eActiveGroup)){
             eScriptType=curToken.eType;
             nextToken();
-            if (eScriptType==Token.FROM) sCsub=relation(fSize,eAlign);
-            else if (eScriptType==Token.TO) sCsup=relation(fSize,eAlign);
-            else if (eScriptType==Token.LSUB) sLsub=term(fSize,eAlign);
-            else if (eScriptType==Token.LSUP) sLsup=term(fSize,eAlign);
-            else if (eScriptType==Token.CSUB) sCsub=term(fSize,eAlign);
-            else if (eScriptType==Token.CSUP) sCsup=term(fSize,eAlign);
-            else if (eScriptType==Token.RSUB) sRsub=term(fSize,eAlign);
-            else if (eScriptType==Token.RSUP) sRsup=term(fSize,eAlign);
-        }
-        if (sLsub==null && sLsup==null && sCsub==null && sCsup==null && sRsub==null && sRsup==null){
-            return sBody;
+            if (eScriptType==Token.FROM) relation(fSize,eAlign,bufCsub=new StringBuilder());
+            else if (eScriptType==Token.TO) relation(fSize,eAlign,bufCsup=new StringBuilder());
+            else if (eScriptType==Token.LSUB) term(fSize,eAlign,bufLsub=new StringBuilder());
+            else if (eScriptType==Token.LSUP) term(fSize,eAlign,bufLsup=new StringBuilder());
+            else if (eScriptType==Token.CSUB) term(fSize,eAlign,bufCsub=new StringBuilder());
+            else if (eScriptType==Token.CSUP) term(fSize,eAlign,bufCsup=new StringBuilder());
+            else if (eScriptType==Token.RSUB) term(fSize,eAlign,bufRsub=new StringBuilder());
+            else if (eScriptType==Token.RSUP) term(fSize,eAlign,bufRsup=new StringBuilder());
+        }
+        if (bufLsub==null && bufLsup==null && bufCsub==null && bufCsup==null && bufRsub==null && bufRsup==null){
+            return;
         }
         if (eActiveGroup==TGroup.LIMIT){
-            if (sLsub==null && sLsup==null && sRsub==null && sRsup==null){
+            if (bufLsub==null && bufLsup==null && bufRsub==null && bufRsup==null){
                 // ordinary limits
-                return sBody+tosub(sCsub)+tosup(sCsup);
+                tosup(tosub(buf,bufCsub),bufCsup);
             }
             else { // nontrivial case: use \sideset
                 // problem: always typesets the operator in \displaystyle
                 // solution: use \multiscripts instead???
-                return "\\sideset{"+tosub(sLsub)+tosup(sLsup)+"}{"+tosub(sRsub)+tosup(sRsup)+"}"
-                +sBody+"\\limits"+tosub(sCsub)+tosup(sCsup);
+                StringBuilder bufSideset=new StringBuilder("\\sideset{");
+                tosup(tosub(bufSideset,bufLsub),bufLsup).append("}{");
+                tosup(tosub(bufSideset,bufRsub),bufRsup).append("}");
+                buf.insert(nBody,bufSideset);
+                tosup(tosub(buf.append("\\limits"),bufCsub),bufCsup);
             }
         }
         else {
-            if (sLsub==null && sLsup==null && sCsub==null && sCsup==null){
+            if (bufLsub==null && bufLsup==null && bufCsub==null && bufCsup==null){
                 // ordinary scripts
-                return sBody+tosub(sRsub)+tosup(sRsup);
+                tosup(tosub(buf,bufRsub),bufRsup);
             }
-            else if (sLsub==null && sLsup==null && sRsub==null && sRsup==null){
+            else if (bufLsub==null && bufLsup==null && bufRsub==null && bufRsup==null){
                 // scripts above/below
-                if (sCsub==null){
-                    return "\\overset"+groupsp(sCsup)+"{"+sBody+"}";
+                if (bufCsub==null){
+                    buf.insert(nBody,groupsp(new StringBuilder("\\overset"),bufCsup).append("{")).append("}");
                 }
-                else if (sCsup==null){
-                    return "\\underset"+groupsp(sCsub)+"{"+sBody+"}";
+                else if (bufCsup==null){
+                    buf.insert(nBody,groupsp(new StringBuilder("\\underset"),bufCsub).append("{")).append("}");
                 }
                 else {
-                    return "\\overset"+groupsp(sCsup)+"{\\underset"+groupsp(sCsub)+"{"+sBody+"}}";
+                    StringBuilder bufScripts=groupsp(new StringBuilder("\\overset"),bufCsup).append("{\\underset");
+                    buf.insert(nBody,groupsp(bufScripts,bufCsub).append("{")).append("}}");
                 }
             }
             else {// general case: use \multiscripts
                 bMultiscripts=true;
-                if (sCsub==null) {sCsub="{}";}
-                if (sCsup==null) {sCsup="{}";}
-                return "\\multiscripts{"+tosub(sLsub)+tosup(sLsup)+"}"+group(sCsub)+group(sCsup)
-                +"{"+sBody+"}{"+tosub(sRsub)+tosup(sRsup)+"}";
+                StringBuilder bufScripts=new StringBuilder("\\multiscripts{");
+                tosup(tosub(bufScripts,bufLsub),bufLsup).append("}");
+                group(bufScripts,bufCsub!=null ? bufCsub : "{}");
+                group(bufScripts,bufCsup!=null ? bufCsup : "{}");
+                buf.insert(nBody,bufScripts.append("{"));
+                tosup(tosub(buf.append("}{"),bufRsub),bufRsup).append("}");
             }
         }
     }
     
-    private String opsubsup(float fSize, Token eAlign){
-        String sOperator=curToken.sLaTeX;
+    private void opsubsup(float fSize, Token eAlign, StringBuilder buf){
+        int nStart=buf.length();
+        buf.append(curToken.sLaTeX);
         nextToken();
-        return subsup(fSize,eAlign,sOperator,TGroup.POWER);
+        subsup(fSize,eAlign,buf,nStart,TGroup.POWER);
     }
     
-    private String power(float fSize, Token eAlign){
-        return subsup(fSize,eAlign,term(fSize,eAlign),TGroup.POWER);
+    private void power(float fSize, Token eAlign, StringBuilder buf){
+        int nStart=buf.length();
+        term(fSize,eAlign,buf);
+        subsup(fSize,eAlign,buf,nStart,TGroup.POWER);
     }
     
-    private String blank(){
-        StringBuilder bufBlank=new StringBuilder();
+    private void blank(StringBuilder buf){
         while (tokenInGroup(TGroup.BLANK)){
-            bufBlank.append(curToken.sLaTeX);
+            buf.append(curToken.sLaTeX);
             nextToken();
         }
-        return bufBlank.toString();
     }
     
-    private String term(float fSize, Token eAlign) {
+    private void term(float fSize, Token eAlign, StringBuilder buf) {
         String sContent;
         if (curToken.eType==Token.ESCAPE)
-            return escape();
+            escape(buf);
         else if (curToken.eType==Token.LGROUP){
             nextToken();
             if (curToken.eType!=Token.RGROUP) 
-                sContent=align(fSize,eAlign,false,false);
-            else 
-                sContent=""; // empty group
+                align(fSize,eAlign,false,false,buf);
+            // otherwise it's an empty group
             if (curToken.eType==Token.RGROUP) 
                 nextToken();
             // otherwise there is an error in the formula, ignore this
             // note that we do not keep the grouping; we add grouping where LaTeX needs it instead
-          	return sContent;
         }
         else if (curToken.eType==Token.LEFT)
-            return scalebrace(fSize,eAlign);
+            scalebrace(fSize,eAlign,buf);
         else if (tokenInGroup(TGroup.BLANK))
-            return blank();
+            blank(buf);
         else if (curToken.eType==Token.TEXT){
             sContent=curToken.sLaTeX;
             nextToken();
             if (!numberPattern.matcher(sContent).matches()) {
-            	return "\\text"+groupsp(sContent);
+            	groupsp(buf.append("\\text"),sContent);
             }
             else { // In the special case that the text is simply a number, using \text is superflous
-            	return sContent;
+            	buf.append(sContent);
             }
         }
         else if (curToken.eType==Token.CHARACTER || curToken.eType==Token.NUMBER
                  || tokenInGroup(TGroup.STANDALONE)){
 	        if (curToken.eType==Token.LAMBDABAR) { bLambdabar=true; }
 	        if (curToken.eType==Token.DOTSUP) { bDdotsup=true; }
-            sContent=curToken.sLaTeX;
+            buf.append(curToken.sLaTeX);
             nextToken();
-            return sContent;
         }
         else if (curToken.eType==Token.IDENT){
             sContent=curToken.sLaTeX;
             boolean bSingleChar = curToken.bSingleChar;
             nextToken();
-            return bSingleChar ? sContent : "\\mathit{"+sContent+"}";
+            if (bSingleChar) {
+            	buf.append(sContent);
+            }
+            else {
+            	buf.append("\\mathit{").append(sContent).append("}");
+            }
         }
         else if (curToken.eType==Token.SPECIAL)
-            return special();
+            buf.append(special());
         else if (curToken.eType==Token.BINOM)
-            return binom(fSize,eAlign);
+            binom(fSize,eAlign,buf);
         else if (curToken.eType==Token.STACK)
-            return stack(fSize,eAlign);
+            stack(fSize,eAlign,buf);
         else if (curToken.eType==Token.MATRIX)
-            return matrix(fSize,eAlign);
+            matrix(fSize,eAlign,buf);
         else if (tokenInGroup(TGroup.LBRACES))
-            return brace(fSize,eAlign);
+            brace(fSize,eAlign,buf);
         else if (tokenInGroup(TGroup.OPER))
-            return operator(fSize,eAlign);
+            operator(fSize,eAlign,buf);
         else if (tokenInGroup(TGroup.UNOPER))
-            return unoper(fSize,eAlign);
+            unoper(fSize,eAlign,buf);
         else if (tokenInGroup(TGroup.ATTRIBUT) || tokenInGroup(TGroup.FONTATTR))
-            return attributes(fSize,eAlign);
+            attributes(fSize,eAlign,buf);
         else if (tokenInGroup(TGroup.FUNCTION))
-            return function();
+            function(buf);
         else { // error in formula
         	if (tokenInGroup(TGroup.RELATION) || tokenInGroup(TGroup.SUM) || tokenInGroup(TGroup.PRODUCT)) {
         		// Try to repair: At least these groups are mostly symbols that are quite acceptable as terms in LaTeX
@@ -1360,98 +1408,109 @@ public final class StarMathConverter implements writer2latex.api.StarMathConvert
         		sContent="?";
         	}
             nextToken();
-            return sContent;
+            buf.append(sContent);
         }
     }
     
-    private String escape(){
-        String sEscape;
+    private void escape(StringBuilder buf){
         nextToken();
         if ((tokenInGroup(TGroup.LBRACES) || tokenInGroup(TGroup.RBRACES))
         && curToken.eType!=Token.NONE){
-            sEscape=curToken.sLaTeX;
+            buf.append(curToken.sLaTeX);
             nextToken();
         }
         else if (curToken.eType==Token.LGROUP){
-            sEscape="\\{";
+            buf.append("\\{");
             nextToken();
         }
         else if (curToken.eType==Token.RGROUP){
-            sEscape="\\}";
+            buf.append("\\}");
             nextToken();
         }
-        else { // error in formula
-            sEscape="";
-        }
-        return sEscape;
+        // otherwise error in formula
     }
     
-    private String operator(float fSize, Token eAlign){
-        String sOperator=oper();
+    private void operator(float fSize, Token eAlign, StringBuilder buf){
+        int nStart=buf.length();
+        oper(buf);
         if (tokenInGroup(TGroup.LIMIT) || tokenInGroup(TGroup.POWER)){
             // Note: TGroup.LIMIT and TGroup.POWER are always in eGroup1, so this is OK:
-            return subsup(fSize,eAlign,sOperator,curToken.eGroup1)+power(fSize,eAlign);
-        }
-        else {
-            return sOperator+power(fSize,eAlign);
+            subsup(fSize,eAlign,buf,nStart,curToken.eGroup1);
         }
+        power(fSize,eAlign,buf);
     }
     
-    private String oper(){
+    private void oper(StringBuilder buf){
         if (curToken.eType==Token.LLINT) { bOiint=true; }
         else if (curToken.eType==Token.LLLINT) { bOiiint=true; }
-        String sOper;
         if (curToken.eType==Token.OPER){
             nextToken();
             if (curToken.eType==Token.SPECIAL)
-                sOper="\\operatornamewithlimits{"+curToken.sLaTeX+"}";
+                buf.append("\\operatornamewithlimits{").append(curToken.sLaTeX).append("}");
             else
-                sOper="\\operatornamewithlimits{?}"; // error in formula
+                buf.append("\\operatornamewithlimits{?}"); // error in formula
         }
         else {
-            sOper=curToken.sLaTeX;
+            buf.append(curToken.sLaTeX);
         }
         nextToken();
-        return sOper;
     }
     
-    private String unoper(float fSize, Token eAlign){
+    private void unoper(float fSize, Token eAlign, StringBuilder buf){
         if (curToken.eType==Token.ABS){
             nextToken();
-            return "\\left|"+power(fSize,eAlign)+"\\right|";
+            buf.append("\\left|");
+            power(fSize,eAlign,buf);
+            buf.append("\\right|");
         }
         else if (curToken.eType==Token.SQRT){
             nextToken();
-            return "\\sqrt"+groupsp(power(fSize,eAlign));
+            buf.append("\\sqrt");
+            int nGroup=beginGroup(buf);
+            power(fSize,eAlign,buf);
+            endGroupsp(buf,nGroup);
         }
         else if (curToken.eType==Token.NROOT){
             nextToken();
-            return "\\sqrt["+power(fSize,eAlign)+"]"+group(power(fSize,eAlign));
+            buf.append("\\sqrt[");
+            power(fSize,eAlign,buf);
+            buf.append("]");
+            int nGroup=beginGroup(buf);
+            power(fSize,eAlign,buf);
+            endGroup(buf,nGroup);
         }
         else if (curToken.eType==Token.UOPER){
             nextToken();
-            return special()+power(fSize,eAlign);
+            buf.append(special());
+            power(fSize,eAlign,buf);
         }
         else if (curToken.eType==Token.FACT){
-            String sOperator=opsubsup(fSize,eAlign);
-            return power(fSize,eAlign)+sOperator;
+            // The operator is placed after the operand
+            StringBuilder bufOperator=new StringBuilder();
+            opsubsup(fSize,eAlign,bufOperator);
+            power(fSize,eAlign,buf);
+            buf.append(bufOperator);
         }
         else { // must be PLUS, MINUS, PLUSMINUS, MINUSPLUS or NEG
-            return opsubsup(fSize,eAlign)+power(fSize,eAlign);
+            opsubsup(fSize,eAlign,buf);
+            power(fSize,eAlign,buf);
         }
     }
     
-    private String attributes(float fSize, Token eAlign){
+    private void attributes(float fSize, Token eAlign, StringBuilder buf){
         String sAttribute;
         if (curToken.eType==Token.FONT){
             nextToken();
             if (tokenInGroup(TGroup.FONT)){
                 sAttribute=curToken.sLaTeX;
                 nextToken();
-                return sAttribute+groupsp(term(fSize,eAlign));
+                buf.append(sAttribute);
+                int nGroup=beginGroup(buf);
+                term(fSize,eAlign,buf);
+                endGroupsp(buf,nGroup);
             }
             else { // error in formula
-                return "?";
+                buf.append("?");
             }
         }
         else if (curToken.eType==Token.COLOR){
@@ -1480,14 +1539,17 @@ public final class StarMathConverter implements writer2latex.api.StarMathConvert
                 			sAttribute="\\textcolor[rgb]{0.5,0,0.5}";	
                 		}
                 	}
-                    return sAttribute+group(term(fSize,eAlign));
+                    buf.append(sAttribute);
+                    int nGroup=beginGroup(buf);
+                    term(fSize,eAlign,buf);
+                    endGroup(buf,nGroup);
                 }
                 else {
-                    return term(fSize,eAlign);
+                    term(fSize,eAlign,buf);
                 }
             }
             else { // error in formula
-                return "?";
+                buf.append("?");
             }
         }
         else if (curToken.eType==Token.SIZE){
@@ -1525,7 +1587,7 @@ public final class StarMathConverter implements writer2latex.api.StarMathConvert
                 fSize=Calc.getFloat(curToken.sLaTeX,fSize);
                 nextToken();
             } // else error in formula: ignore
-            return term(fSize,eAlign);
+            term(fSize,eAlign,buf);
             // currently only reads the size, it is not used
             // should use fSize/fBaseSize to change to 
             // \displaystyle, \textstyle, \scriptstyle, \scriptscriptstyle
@@ -1537,152 +1599,153 @@ public final class StarMathConverter implements writer2latex.api.StarMathConvert
             else if (curToken.eType == Token.ITALIC) { bNormalsubformula=true; }
             sAttribute=curToken.sLaTeX;
             nextToken();
-            return sAttribute+groupsp(term(fSize,eAlign));
+            buf.append(sAttribute);
+            int nGroup=beginGroup(buf);
+            term(fSize,eAlign,buf);
+            endGroupsp(buf,nGroup);
         }
     }
     
-    private String scalebrace(float fSize, Token eAlign){
-        String sLeft, sRight, sBody;
+    private void scalebrace(float fSize, Token eAlign, StringBuilder buf){
         nextToken();
         if (tokenInGroup(TGroup.LBRACES) || tokenInGroup(TGroup.RBRACES)){
             if (curToken.eType==Token.LDBRACKET) { bLlbracket=true; }
             else if (curToken.eType==Token.RDBRACKET) { bRrbracket=true; }
-            sLeft=new String(curToken.sLaTeX);
+            int nStart=buf.length();
+            buf.append("\\left").append(curToken.sLaTeX);
             nextToken();
-            sBody=scalebracebody(fSize,eAlign);
+            scalebracebody(fSize,eAlign,buf);
             if (curToken.eType==Token.RIGHT) {
                 nextToken();
+                buf.append("\\right");
                 if (tokenInGroup(TGroup.LBRACES) || tokenInGroup(TGroup.RBRACES)){
                     if (curToken.eType==Token.LDBRACKET) { bLlbracket=true; }
                     else if (curToken.eType==Token.RDBRACKET) { bRrbracket=true; }
-                    sRight=new String(curToken.sLaTeX);
+                    buf.append(curToken.sLaTeX);
                     nextToken();
                 }
                 else { // no brace after right!
-                    sRight=".";
+                    buf.append(".");
                 }
             }
-            else { // no right!
-                return ".";
+            else { // no right! (drop everything)
+                buf.setLength(nStart);
+                buf.append(".");
             }
-            return "\\left"+sLeft+sBody+"\\right"+sRight;
         }
         else { // no brace after left!
-            return "?";
+            buf.append("?");
         }
     }
 
-    private String brace(float fSize, Token eAlign){
-        String sLeft, sRight, sBody;
+    private void brace(float fSize, Token eAlign, StringBuilder buf){
         if (curToken.eType==Token.LDBRACKET) { bLlbracket=true; }
-        sLeft=new String(curToken.sLaTeX);
+        buf.append(curToken.sLaTeX);
         nextToken();
-        sBody=bracebody(fSize,eAlign);
+        bracebody(fSize,eAlign,buf);
         if (tokenInGroup(TGroup.RBRACES)){
             if (curToken.eType==Token.RDBRACKET) { bRrbracket=true; }
-            sRight=new String(curToken.sLaTeX);
+            buf.append(curToken.sLaTeX);
             nextToken();
-            return sLeft+sBody+sRight;
-        }
-        else { // no right brace! (This is an error, we don't care);
-            return sLeft+sBody;
         }
+        // otherwise no right brace! (This is an error, we don't care);
     }
        
     
-    private String scalebracebody(float fSize, Token eAlign){
+    private void scalebracebody(float fSize, Token eAlign, StringBuilder buf){
         if (curToken.eType==Token.MLINE){
             nextToken();
-            return "\\left|"+scalebracebody(fSize,eAlign)+"\\right.";
+            buf.append("\\left|");
+            scalebracebody(fSize,eAlign,buf);
+            buf.append("\\right.");
         }
         else if (curToken.eType!=Token.RIGHT && curToken.eType!=Token.END){
-            return align(fSize,eAlign,false,false)+scalebracebody(fSize,eAlign);
-        }
-        else {  // Finished recursion
-            return "";
+            align(fSize,eAlign,false,false,buf);
+            scalebracebody(fSize,eAlign,buf);
         }
+        // otherwise finished recursion
     }
 
-    private String bracebody(float fSize, Token eAlign){
+    private void bracebody(float fSize, Token eAlign, StringBuilder buf){
         if (curToken.eType==Token.MLINE){
             nextToken();
-            return "|"+bracebody(fSize,eAlign);
+            buf.append("|");
+            bracebody(fSize,eAlign,buf);
         }
         else if (!tokenInGroup(TGroup.RBRACES) && curToken.eType!=Token.END){
-            return align(fSize,eAlign,false,false)+bracebody(fSize,eAlign);
-        }
-        else { // Finished recursion
-            return "";
+            align(fSize,eAlign,false,false,buf);
+            bracebody(fSize,eAlign,buf);
         }
+        // otherwise finished recursion
     }
     
-    private String function(){
-        String sFunction;
+    private void function(StringBuilder buf){
         if (curToken.eType==Token.FUNC){
             nextToken();
             if (curToken.eType==Token.IDENT){
-                sFunction="\\operatorname{"+curToken.sLaTeX+"}";
+                buf.append("\\operatorname{").append(curToken.sLaTeX).append("}");
                 nextToken();
             }
-            else { // error in formula
-                sFunction="";
-            }
+            // otherwise error in formula
         }
         else {
-            sFunction=curToken.sLaTeX;
+            buf.append(curToken.sLaTeX);
             nextToken();
         }
-        return sFunction;
     }
     
-    private String binom(float fSize, Token eAlign){
+    private void binom(float fSize, Token eAlign, StringBuilder buf){
         nextToken();
-        return "\\genfrac{}{}{0pt}{0}"+group(sum(fSize,eAlign))+group(sum(fSize,eAlign));
+        buf.append("\\genfrac{}{}{0pt}{0}");
+        int nGroup=beginGroup(buf);
+        sum(fSize,eAlign,buf);
+        endGroup(buf,nGroup);
+        nGroup=beginGroup(buf);
+        sum(fSize,eAlign,buf);
+        endGroup(buf,nGroup);
     }
     
-    private String stack(float fSize, Token eAlign){
+    private void stack(float fSize, Token eAlign, StringBuilder buf){
         nextToken();
         if (curToken.eType==Token.LGROUP){
-            StringBuilder bufStack=new StringBuilder().append("\\begin{matrix}");
+            buf.append("\\begin{matrix}");
             nextToken();
-            bufStack.append(align(fSize,eAlign,true,true));
+            align(fSize,eAlign,true,true,buf);
             while (curToken.eType==Token.POUND) {
-                bufStack.append("\\\\");
+                buf.append("\\\\");
                 nextToken();
-                String sAlign = align(fSize,eAlign,true,true);
-                if (sAlign.length()>0 && sAlign.charAt(0)=='[') { // Protect [ after \\
-                	bufStack.append("{}");
+                int nAlignStart=buf.length();
+                align(fSize,eAlign,true,true,buf);
+                if (buf.length()>nAlignStart && buf.charAt(nAlignStart)=='[') { // Protect [ after \\
+                	buf.insert(nAlignStart,"{}");
                 }
-            	bufStack.append(sAlign);
             } 
             if (curToken.eType==Token.RGROUP) nextToken(); // otherwise error in formula - ignore
-            return bufStack.append("\\end{matrix}").toString();
-        }
-        else { // error in formula
-            return "";
+            buf.append("\\end{matrix}");
         }
+        // otherwise error in formula
     }
     
-    private String matrix(float fSize, Token eAlign){
+    private void matrix(float fSize, Token eAlign, StringBuilder buf){
         nextToken();
         if (curToken.eType==Token.LGROUP){
-            StringBuilder bufMatrix = new StringBuilder().append("\\begin{matrix}");
+            buf.append("\\begin{matrix}");
             int nCols = 1;
             boolean bProtect = false;
             do {
                 nextToken();
-                String sAlign = align(fSize,eAlign,true,true);
-                if (bProtect && sAlign.length()>0 && sAlign.charAt(0)=='[') { // Protect [ after \\
-                	bufMatrix.append("{}");
+                int nAlignStart=buf.length();
+                align(fSize,eAlign,true,true,buf);
+                if (bProtect && buf.length()>nAlignStart && buf.charAt(nAlignStart)=='[') { // Protect [ after \\
+                	buf.insert(nAlignStart,"{}");
                 }
-                bufMatrix.append(sAlign);
                 if (curToken.eType==Token.POUND) {
-                	bufMatrix.append("&");
+                	buf.append("&");
                 	nCols++;
                 	bProtect = false;
                 }
                 else if (curToken.eType==Token.DPOUND) { 
-                	bufMatrix.append("\\\\");
+                	buf.append("\\\\");
                 	nMaxMatrixCols = Math.max(nCols, nMaxMatrixCols);
                 	nCols = 1;
                 	bProtect = true;
@@ -1690,11 +1753,9 @@ public final class StarMathConverter implements writer2latex.api.StarMathConvert
             } while (curToken.eType==Token.POUND || curToken.eType==Token.DPOUND);
             if (curToken.eType==Token.RGROUP) nextToken(); // otherwise error in formula- ignore
         	nMaxMatrixCols = Math.max(nCols, nMaxMatrixCols);
-            return bufMatrix.append("\\end{matrix}").toString();
+            buf.append("\\end{matrix}");
         }
-        else { // error in formula
-            return "";
-        }           
+        // otherwise error in formula
     }
     
     private String special() {
@@ -1703,35 +1764,72 @@ public final class StarMathConverter implements writer2latex.api.StarMathConvert
         return sSpecial;         
     }
     
-    // Group a LaTeX string unless it consists of exactly one character
-    private String group(String sLaTeX) {
+    // Append a LaTeX string as a group unless it consists of exactly one character
+    private StringBuilder group(StringBuilder buf, CharSequence sLaTeX) {
     	if (sLaTeX.length()!=1) {
-    		return "{"+sLaTeX+"}";
+    		return buf.append("{").append(sLaTeX).append("}");
     	}
     	else {
-    		return sLaTeX;
+    		return buf.append(sLaTeX);
     	}
     }
     
-    // Group a LaTeX string unless it consists of exactly one character which is not a space
+    // Append a LaTeX string as a group unless it consists of exactly one character which is not a space
     // In the latter case, prepend a space character (because this string follows a command sequence) 
-    private String groupsp(String sLaTeX) {
+    private StringBuilder groupsp(StringBuilder buf, CharSequence sLaTeX) {
     	if (sLaTeX.length()!=1 || sLaTeX.charAt(0)==' ') {
-    		return "{"+sLaTeX+"}";
+    		return buf.append("{").append(sLaTeX).append("}");
+    	}
+    	else {
+    		return buf.append(" ").append(sLaTeX);
+    	}
+    }
+    
+    // Start a group to be converted directly into the buffer: Append a left brace and return the start of the content
+    private int beginGroup(StringBuilder buf) {
+    	buf.append("{");
+    	return buf.length();
+    }
+    
+    // End a group started with beginGroup, using the same rules as group
+    private void endGroup(StringBuilder buf, int nStart) {
+    	if (buf.length()-nStart!=1) {
+    		buf.append("}");
+    	}
+    	else {
+    		buf.deleteCharAt(nStart-1);
+    	}
+    }
+    
+    // End a group started with beginGroup, using the same rules as groupsp
+    private void endGroupsp(StringBuilder buf, int nStart) {
+    	if (buf.length()-nStart!=1 || buf.charAt(nStart)==' ') {
+    		buf.append("}");
+    	}
+    	else {
+    		buf.setCharAt(nStart-1,' ');
+    	}
+    }
+    
+    // Group the content of the buffer from a given position using the same rules as groupsp,
+    // and insert a command in front of it
+    private void insertGroupsp(StringBuilder buf, int nStart, String sCommand) {
+    	if (buf.length()-nStart!=1 || buf.charAt(nStart)==' ') {
+    		buf.insert(nStart,sCommand+"{").append("}");
     	}
     	else {
-    		return " "+sLaTeX;
+    		buf.insert(nStart,sCommand+" ");
     	}
     }
     
     ////////////////////////////////////////////////
     // Finally, the converter itself
     public String convert(String sStarMath){
-        String sExport="";
+        StringBuilder buf=new StringBuilder();
         buffer=new SimpleInputBuffer(sStarMath);
         nextToken();
-        sExport=table(12.0F,Token.ALIGNC);
-        return sExport.length()==0 ? " " : sExport; // don't return an empty formula!
+        table(12.0F,Token.ALIGNC,buf);
+        return buf.length()==0 ? " " : buf.toString(); // don't return an empty formula!
     }
 }
 
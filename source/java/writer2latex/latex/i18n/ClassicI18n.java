@@ -27,14 +27,17 @@
 package writer2latex.latex.i18n;
 
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Map;
 import java.util.Stack;
 import java.util.Iterator;
 
-import javax.xml.parsers.SAXParserFactory;
 import javax.xml.parsers.SAXParser;
 
 import writer2latex.util.CSVList;
+import writer2latex.util.XMLParserPool;
 import writer2latex.latex.LaTeXConfig;
 import writer2latex.latex.LaTeXDocumentPortion;
 import writer2latex.latex.ConverterPalette;
@@ -216,15 +219,62 @@ public class ClassicI18n extends I18n {
         babelLanguages.put("uk", "ukrainian"); // cp1251?
     }
 
+    // **** Static data and methods: Unicode tables ****
+    
+    // The tables read from symbols.xml, indexed by the string of symbol sets used to read them
+    private static final Map<String,Map<String,UnicodeTable>> symbolTables = new HashMap<String,Map<String,UnicodeTable>>();
+    
+    // Get the tables for a string of symbol sets (separated by |). The tables are read only once, and are
+    // shared by all instances. This is safe because the tables are never modified after reading.
+    private static synchronized Map<String,UnicodeTable> getSymbolTables(String sSymbols) {
+        Map<String,UnicodeTable> tables = symbolTables.get(sSymbols);
+        if (tables==null) {
+            Hashtable<String,UnicodeTable> tableSet = new Hashtable<String,UnicodeTable>();
+            UnicodeTableHandler handler=new UnicodeTableHandler(tableSet, sSymbols);
+            // Use the compiled version of symbols.xml if it was created by the build
+            InputStream is = ClassicI18n.class.getResourceAsStream("symbols.bin");
+            try {
+                if (is!=null) {
+                    try {
+                        SymbolsCompiler.read(is,handler);
+                    }
+                    finally {
+                        is.close();
+                    }
+                }
+                else {
+                    is = ClassicI18n.class.getResourceAsStream("symbols.xml");
+                    SAXParser saxParser=XMLParserPool.getSAXParser();
+                    try {
+                        saxParser.parse(is,handler);
+                    }
+                    finally {
+                        XMLParserPool.releaseSAXParser(saxParser);
+                    }
+                }
+                tables = Collections.unmodifiableMap(tableSet);
+                symbolTables.put(sSymbols, tables);
+            }
+            catch (Throwable t){
+                System.err.println("Oops - Unable to read symbols.xml");
+                t.printStackTrace();
+                // Use whatever we got, but try again next time
+                tables = tableSet;
+            }
+        }
+        return tables;
+    }
+
     // End of static part of I18n!
 
     // **** Global variables ****
 
     // Unicode translation
-    private Hashtable<String,UnicodeTable> tableSet; // all tables
+    private Map<String,UnicodeTable> tableSet; // all tables (shared, must not be modified)
     private UnicodeTable table; // currently active table (top of stack)
     private Stack<UnicodeTable> tableStack; // stack of active tables
     private UnicodeStringParser ucparser; // Unicode string parser
+    private Map<UnicodeTable,byte[]> safeCharsMap = new HashMap<UnicodeTable,byte[]>(); // safe characters for each table
 
     // Collected data
     private int nDefaultFontenc; // Fontenc for the default language
@@ -261,18 +311,7 @@ public class ClassicI18n extends I18n {
         if (config.useEurosym()) sSymbols+="|eurosym";
         if (config.useTipa()) sSymbols+="|tipa";
 
-        tableSet = new Hashtable<String,UnicodeTable>();
-        UnicodeTableHandler handler=new UnicodeTableHandler(tableSet, sSymbols);
-        SAXParserFactory factory=SAXParserFactory.newInstance();
-        InputStream is = this.getClass().getResourceAsStream("symbols.xml");
-        try {
-            SAXParser saxParser=factory.newSAXParser();
-            saxParser.parse(is,handler);
-        }
-        catch (Throwable t){
-		    System.err.println("Oops - Unable to read symbols.xml");
-            t.printStackTrace();
-        }
+        tableSet = getSymbolTables(sSymbols);
         // put root table at top of stack
         tableStack = new Stack<UnicodeTable>();
         tableStack.push(tableSet.get("root"));
@@ -520,6 +559,27 @@ public class ClassicI18n extends I18n {
      */
     public String convert(String s, boolean bMathMode, String sLang){
         if (!bAlwaysUseDefaultLang && sLang!=null) { languages.add(sLang); }
+        if (cache!=null && cache.accepts(s)) {
+            // The language only matters if it is not overridden by the default language
+            String sCacheLang = bAlwaysUseDefaultLang ? null : sLang;
+            ConversionCache.Entry entry = cache.get(s,bMathMode,sCacheLang,table);
+            if (entry!=null) {
+                setUsedFlags(getUsedFlags() | entry.getFlags());
+                return entry.getResult();
+            }
+            // Collect the flags set by this conversion
+            int nFlags = getUsedFlags();
+            setUsedFlags(0);
+            String sResult = convertString(s,bMathMode,sLang);
+            int nNewFlags = getUsedFlags();
+            setUsedFlags(nFlags | nNewFlags);
+            cache.put(s,bMathMode,sCacheLang,table,sResult,nNewFlags);
+            return sResult;
+        }
+        return convertString(s,bMathMode,sLang);
+    }
+	
+    private String convertString(String s, boolean bMathMode, String sLang) {
         StringBuilder buf=new StringBuilder();
         int nFontenc = bAlwaysUseDefaultLang ? nDefaultFontenc : getFontenc(sLang);
         int nLen = s.length();
@@ -555,10 +615,28 @@ public class ClassicI18n extends I18n {
     private void convert(String s, int nStart, int nEnd, boolean bMathMode, String sLang, StringBuilder buf, int nFontenc) {
         int nCurFontenc = nFontenc;
         ucparser.reset(table,s,nStart,nEnd);
+        byte[] safeChars = getSafeChars(table);
         boolean bIsFirst = true; // Protect all dangerous characters at the start
         char cProtect = '\u0000'; // Current character to protect
         boolean bTempMathMode = false;
-        while (ucparser.next()) {
+        while (true) {
+            if (!bMathMode) {
+                // Fast path: Copy a run of safe characters directly
+                int nIndex = ucparser.getIndex();
+                int nRunEnd = getSafeRunEnd(s,nIndex,nEnd,safeChars,nCurFontenc);
+                if (nRunEnd>nIndex) {
+                    if (bTempMathMode) { // switch to text mode
+                        buf.append("$");
+                        bTempMathMode = false;
+                    }
+                    setFlags(s.charAt(nIndex),nCurFontenc);
+                    buf.append(s,nIndex,nRunEnd);
+                    cProtect = '\u0000';
+                    bIsFirst = false;
+                    ucparser.setIndex(nRunEnd);
+                }
+            }
+            if (!ucparser.next()) { break; }
             char c = ucparser.getChar();
             if (bMathMode) {
                 buf.append(convertMathChar(c,nFontenc));
@@ -650,6 +728,42 @@ public class ClassicI18n extends I18n {
 
     }
 
+    // Get the end of a run of safe characters (see getSafeChars) starting at a given index
+    private int getSafeRunEnd(String s, int nIndex, int nEnd, byte[] safeChars, int nCurFontenc) {
+        int i = nIndex;
+        while (i<nEnd) {
+            char c = s.charAt(i);
+            if (c>=128 || (safeChars[c] & nCurFontenc)==0) { break; }
+            i++;
+        }
+        // The last character must be left to the parser if it is followed by an ignored or combining character
+        if (i>nIndex && i<s.length()) {
+            int nType = table.getCharType(s.charAt(i));
+            if (nType==UnicodeCharacter.IGNORE || nType==UnicodeCharacter.COMBINING) { i--; }
+        }
+        return i;
+    }
+	
+    // Get the safe ASCII characters for a table. A character is safe if it is represented by itself in text mode,
+    // which means that it can be copied directly to the output in a font encoding supported by the character.
+    // The result is indexed by character and contains the supported font encodings, or 0 if the character is not safe.
+    private byte[] getSafeChars(UnicodeTable table) {
+        byte[] safeChars = safeCharsMap.get(table);
+        if (safeChars==null) {
+            safeChars = new byte[128];
+            for (char c=0; c<128; c++) {
+                int nFontencs = table.getFontencs(c);
+                if (table.getCharType(c)==UnicodeCharacter.NORMAL && table.hasTextChar(c)
+                    && table.getTextChar(c).length()==1 && table.getTextChar(c).charAt(0)==c
+                    && table.getProtectChar(c)=='\u0000' && nFontencs!=LGR_ENC) {
+                    safeChars[c] = (byte) nFontencs;
+                }
+            }
+            safeCharsMap.put(table, safeChars);
+        }
+        return safeChars;
+    }
+
     // convert a single math character
     private String convertMathChar(char c, int nFontenc) {
         if (table.hasMathChar(c)) {
@@ -764,6 +878,18 @@ public class ClassicI18n extends I18n {
         return bGreekMath && nFontenc!=LGR_ENC && table.getFontencs(c)==LGR_ENC;
     }
 	
+    // Get the cyrillic and greek flags as an integer (used by the cache)
+    private int getUsedFlags() {
+        return (bT2A ? 1 : 0) | (bGreek ? 2 : 0) | (bPolytonicGreek ? 4 : 0);
+    }
+	
+    // Set the cyrillic and greek flags from an integer (used by the cache)
+    private void setUsedFlags(int nFlags) {
+        bT2A = (nFlags & 1)!=0;
+        bGreek = (nFlags & 2)!=0;
+        bPolytonicGreek = (nFlags & 4)!=0;
+    }
+	
     // Set cyrillic and greek flags
     private void setFlags(char c, int nFontenc) {
         if ((c>='\u1F00') && (c<='\u1FFF')) bPolytonicGreek = true;
@@ -0,0 +1,180 @@
+/************************************************************************
+ *
+ *  ConversionCache.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+
+package writer2latex.latex.i18n;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** This class is a bounded cache of strings converted to LaTeX, discarding the least recently used strings.
+ *  The key is the string, the mode, the language and the table used for the conversion. Besides the LaTeX
+ *  code, an entry holds flags representing the side effects of the conversion, which must be replayed
+ *  when the entry is used. Only short strings are cached, since these are the ones which are repeated.
+ */
+class ConversionCache {
+	// The maximal length of strings to cache
+	private static final int MAX_LENGTH = 256;
+	
+	// The key of an entry
+	private static final class Key {
+		private final String s;
+		private final boolean bMathMode;
+		private final String sLang;
+		private final Object table;
+		private final int nHash;
+		
+		Key(String s, boolean bMathMode, String sLang, Object table) {
+			this.s = s;
+			this.bMathMode = bMathMode;
+			this.sLang = sLang;
+			this.table = table;
+			int nHash = s.hashCode()*31 + (bMathMode ? 1 : 0);
+			nHash = nHash*31 + (sLang!=null ? sLang.hashCode() : 0);
+			this.nHash = nHash*31 + System.identityHashCode(table);
+		}
+		
+		@Override public int hashCode() {
+			return nHash;
+		}
+		
+		@Override public boolean equals(Object object) {
+			if (!(object instanceof Key)) { return false; }
+			Key key = (Key) object;
+			return nHash==key.nHash && bMathMode==key.bMathMode && table==key.table && s.equals(key.s)
+					&& (sLang!=null ? sLang.equals(key.sLang) : key.sLang==null);
+		}
+	}
+	
+	/** An entry in the cache
+	 */
+	static final class Entry {
+		private final String sResult;
+		private final int nFlags;
+		
+		private Entry(String sResult, int nFlags) {
+			this.sResult = sResult;
+			this.nFlags = nFlags;
+		}
+		
+		/** Get the LaTeX code
+		 * 
+		 * @return the result of the conversion
+		 */
+		String getResult() {
+			return sResult;
+		}
+		
+		/** Get the side effects of the conversion
+		 * 
+		 * @return the flags set by the conversion
+		 */
+		int getFlags() {
+			return nFlags;
+		}
+	}
+	
+	// A map holding at most a given number of entries, discarding the least recently used entry
+	private static final class LRUMap extends LinkedHashMap<Key,Entry> {
+		private static final long serialVersionUID = 1L;
+		
+		private final int nMaxSize;
+		
+		LRUMap(int nMaxSize) {
+			super(Math.min(nMaxSize, 1024)*4/3+1,0.75F,true);
+			this.nMaxSize = nMaxSize;
+		}
+		
+		@Override protected boolean removeEldestEntry(Map.Entry<Key,Entry> eldest) {
+			return size()>nMaxSize;
+		}
+	}
+	
+	private final Map<Key,Entry> entries;
+	private long nHits = 0;
+	private long nMisses = 0;
+	
+	/** Create a new <code>ConversionCache</code>
+	 * 
+	 * @param nMaxSize the maximal number of entries
+	 */
+	ConversionCache(int nMaxSize) {
+		entries = new LRUMap(nMaxSize);
+	}
+	
+	/** Test whether a string is cached
+	 * 
+	 * @param s the string
+	 * @return true if the string is short enough to be cached
+	 */
+	boolean accepts(String s) {
+		return s.length()<=MAX_LENGTH;
+	}
+	
+	/** Get an entry from the cache (this counts as a hit or a miss)
+	 * 
+	 * @param s the string to convert
+	 * @param bMathMode true if the string is converted in math mode
+	 * @param sLang the language used for the conversion
+	 * @param table the table used for the conversion
+	 * @return the entry, or null if the string is not in the cache
+	 */
+	Entry get(String s, boolean bMathMode, String sLang, Object table) {
+		Entry entry = entries.get(new Key(s,bMathMode,sLang,table));
+		if (entry!=null) { nHits++; } else { nMisses++; }
+		return entry;
+	}
+	
+	/** Add an entry to the cache
+	 * 
+	 * @param s the string to convert
+	 * @param bMathMode true if the string is converted in math mode
+	 * @param sLang the language used for the conversion
+	 * @param table the table used for the conversion
+	 * @param sResult the result of the conversion
+	 * @param nFlags the side effects of the conversion
+	 */
+	void put(String s, boolean bMathMode, String sLang, Object table, String sResult, int nFlags) {
+		entries.put(new Key(s,bMathMode,sLang,table), new Entry(sResult,nFlags));
+	}
+	
+	/** Get the number of conversions found in the cache
+	 * 
+	 * @return the number of hits
+	 */
+	long getHits() {
+		return nHits;
+	}
+
+	/** Get the number of conversions not found in the cache
+	 * 
+	 * @return the number of misses
+	 */
+	long getMisses() {
+		return nMisses;
+	}
+	
+}
@@ -56,6 +56,9 @@ public abstract class I18n {
     protected String sDefaultLanguage; // The default LCG ISO language to use
     protected String sDefaultCountry; // The default LCG ISO country to use
     protected HashSet<String> languages = new HashSet<String>(); // All LCG languages used
+    
+    // Cache of converted strings (or null if not used)
+    protected ConversionCache cache = null;
 
     // **** Constructors ****
 
@@ -73,6 +76,9 @@ public abstract class I18n {
         stringReplace = config.getStringReplace();
         bGreekMath = config.greekMath();
         bAlwaysUseDefaultLang = !config.multilingual();
+        if (config.getI18nCacheSize()>0) {
+        	cache = new ConversionCache(config.getI18nCacheSize());
+        }
         
         // Default language
         if (ofr!=null) {
@@ -125,6 +131,26 @@ public abstract class I18n {
      */
     public abstract String convert(String s, boolean bMathMode, String sLang);
     
+    /** Convert a string of characters into LaTeX and append the result to a buffer
+     *  @param s the source string
+     *  @param bMathMode true if the string should be rendered in math mode
+     *  @param sLang the ISO language of the string
+     *  @param buf the buffer to append the LaTeX string to
+     */
+    public void convert(String s, boolean bMathMode, String sLang, StringBuilder buf) {
+    	buf.append(convert(s,bMathMode,sLang));
+    }
+    
+    /** Convert a string of characters into LaTeX and append the result to a LaTeX document portion
+     *  @param s the source string
+     *  @param bMathMode true if the string should be rendered in math mode
+     *  @param sLang the ISO language of the string
+     *  @param ldp the <code>LaTeXDocumentPortion</code> to append the LaTeX string to
+     */
+    public void convert(String s, boolean bMathMode, String sLang, LaTeXDocumentPortion ldp) {
+    	convert(s,bMathMode,sLang,ldp.getBuffer());
+    }
+    
     /** Get the default language (either the document language or the most used language)
      * 
      *  @return the default language
@@ -133,6 +159,22 @@ public abstract class I18n {
     	return sDefaultLanguage;
     }
     
+    /** Get the number of conversions that were taken from the cache
+     * 
+     *  @return the number of cache hits (0 if the cache is disabled)
+     */
+    public long getCacheHits() {
+    	return cache!=null ? cache.getHits() : 0;
+    }
+    
+    /** Get the number of conversions that were not found in the cache
+     * 
+     *  @return the number of cache misses (0 if the cache is disabled)
+     */
+    public long getCacheMisses() {
+    	return cache!=null ? cache.getMisses() : 0;
+    }
+    
     /** Get the default country
      * 
      *  @return the default country
@@ -26,18 +26,25 @@
 
 package writer2latex.latex.i18n;
 
+import java.util.Arrays;
 import java.util.Set;
 
-/** This class contains a node in a trie of string -> LaTeX code replacements  
+/** This class contains a node in a trie of string -> LaTeX code replacements.
+ *  The children of a node are kept in arrays sorted by letter. A child is found by direct indexing on the
+ *  letter if the letters are dense, and otherwise by binary search.
 */
 public class ReplacementTrieNode {
 
+    private static final char[] NO_LETTERS = new char[0];
+    private static final ReplacementTrieNode[] NO_CHILDREN = new ReplacementTrieNode[0];
+
     private char cLetter;
     private int nInputLength;
     private String sLaTeXCode = null;
     private int nFontencs = 0;
-    private ReplacementTrieNode son = null;
-    private ReplacementTrieNode brother = null;
+    private char[] letters = NO_LETTERS; // the letters of the children, sorted
+    private ReplacementTrieNode[] children = NO_CHILDREN; // the children in the same order
+    private ReplacementTrieNode[] index = null; // the children indexed by letter-letters[0], if not too sparse
 	
     public ReplacementTrieNode(char cLetter, int nInputLength) {
         this.cLetter = cLetter;
@@ -60,78 +67,84 @@ public class ReplacementTrieNode {
         this.nFontencs = nFontencs;
     }
 	
-    protected ReplacementTrieNode getFirstChild() {
-        return this.son;
-    }
-	
-    protected ReplacementTrieNode getNextSibling() {
-        return this.brother;
-    }
-	
     protected ReplacementTrieNode getChildByLetter(char cLetter) {
-        ReplacementTrieNode child = this.getFirstChild();
-        while (child!=null) {
-            if (cLetter==child.getLetter()) { return child; }
-            child = child.getNextSibling();
+        if (index!=null) {
+            int nOffset = cLetter-letters[0];
+            return nOffset>=0 && nOffset<index.length ? index[nOffset] : null;
         }
-        return null;
+        int nIndex = Arrays.binarySearch(letters, cLetter);
+        return nIndex>=0 ? children[nIndex] : null;
     }
 	
-    protected void appendChild(ReplacementTrieNode node) {
-        if (son==null) { son = node; }
-        else { son.appendSibling(node); }
-    }
-
-    protected void appendSibling(ReplacementTrieNode node) {
-        if (brother==null) { brother = node; }
-        else { brother.appendSibling(node); }
+    // Add a child, which must not have the same letter as an existing child
+    protected void addChild(ReplacementTrieNode node) {
+        int nIndex = -Arrays.binarySearch(letters, node.getLetter())-1;
+        int nCount = letters.length;
+        char[] newLetters = new char[nCount+1];
+        ReplacementTrieNode[] newChildren = new ReplacementTrieNode[nCount+1];
+        System.arraycopy(letters, 0, newLetters, 0, nIndex);
+        System.arraycopy(children, 0, newChildren, 0, nIndex);
+        newLetters[nIndex] = node.getLetter();
+        newChildren[nIndex] = node;
+        System.arraycopy(letters, nIndex, newLetters, nIndex+1, nCount-nIndex);
+        System.arraycopy(children, nIndex, newChildren, nIndex+1, nCount-nIndex);
+        letters = newLetters;
+        children = newChildren;
+        // Use direct indexing if the letters are dense enough (as is usually the case)
+        int nSpan = letters[nCount]-letters[0]+1;
+        if (nSpan<=Math.max(16, 4*(nCount+1))) {
+            index = new ReplacementTrieNode[nSpan];
+            for (ReplacementTrieNode child : children) {
+                index[child.getLetter()-letters[0]] = child;
+            }
+        }
+        else {
+            index = null;
+        }
     }
 	
+    // Get the first node with LaTeX code on the path given by the input, starting from this node
     protected ReplacementTrieNode get(String sInput, int nStart, int nEnd) {
-        if (nStart>=nEnd) { return null; }
-        char c = sInput.charAt(nStart);
-        ReplacementTrieNode child = this.getFirstChild();
-        while (child!=null) {
-            if (child.getLetter()==c) {
-                if (child.getLaTeXCode()!=null) { return child; }
-                else { return child.get(sInput,nStart+1,nEnd); }
-            }
-            child = child.getNextSibling();
+        ReplacementTrieNode node = this;
+        for (int i=nStart; i<nEnd; i++) {
+            node = node.getChildByLetter(sInput.charAt(i));
+            if (node==null) { return null; }
+            if (node.getLaTeXCode()!=null) { return node; }
         }
         return null;
     }
 	
     protected void put(String sInput, String sLaTeXCode, int nFontencs) {
-        char c = sInput.charAt(0);
-        ReplacementTrieNode child = this.getChildByLetter(c);
-        if (child==null) {
-            child = new ReplacementTrieNode(c,this.getInputLength()+1);
-            this.appendChild(child);
-        }
-        if (sInput.length()>1) {
-            child.put(sInput.substring(1),sLaTeXCode,nFontencs);
-        }
-        else {
-            child.setLaTeXCode(sLaTeXCode);
-            child.setFontencs(nFontencs);
+        ReplacementTrieNode node = this;
+        int nLen = sInput.length();
+        for (int i=0; i<nLen; i++) {
+            char c = sInput.charAt(i);
+            ReplacementTrieNode child = node.getChildByLetter(c);
+            if (child==null) {
+                child = new ReplacementTrieNode(c,node.getInputLength()+1);
+                node.addChild(child);
+            }
+            node = child;
         }
+        node.setLaTeXCode(sLaTeXCode);
+        node.setFontencs(nFontencs);
     }
     
     protected void collectStrings(Set<String> strings, String sPrefix) {
-    	ReplacementTrieNode child = this.getFirstChild();
-    	while (child!=null) {
+        for (ReplacementTrieNode child : children) {
         	if (child.getLaTeXCode()!=null) {
         		strings.add(sPrefix+child.getLetter());
         	}
     		child.collectStrings(strings, sPrefix+child.getLetter());
-    		child = child.getNextSibling();
     	}
     }
 	
     public String toString() {
         String s = Character.toString(cLetter);
-        if (brother!=null) { s+=brother.toString(); }
-        if (son!=null) { s+="\nInputLength "+(nInputLength+1)+", "+son.toString(); }
+        if (children.length>0) {
+            s+="\nInputLength "+(nInputLength+1)+", "+new String(letters);
+            for (ReplacementTrieNode child : children) { s+="\n"+child.toString(); }
+        }
         else { s+="\n"; }
         return s;
     }
@@ -0,0 +1,209 @@
+/************************************************************************
+ *
+ *  SymbolsCompiler.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+
+package writer2latex.latex.i18n;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/** This class compiles symbols.xml into a compact binary form, which can be read without an XML parser.
+ *  The binary form contains the elements and attributes of symbols.xml (comments and text are dropped),
+ *  and reading it replays the SAX events to a <code>DefaultHandler</code>.
+ *  The compilation is done at build time:
+ *  <code>java writer2latex.latex.i18n.SymbolsCompiler symbols.xml symbols.bin</code>
+ */
+public class SymbolsCompiler extends DefaultHandler {
+	// Identification of the binary format
+	private static final int MAGIC = 0x57324C53; // W2LS
+	private static final int VERSION = 1;
+	
+	// Event types
+	private static final int END_DOCUMENT = 0;
+	private static final int START_ELEMENT = 1;
+	private static final int END_ELEMENT = 2;
+	
+	// The strings (element names, attribute names and values) are stored in a pool
+	private List<String> strings = new ArrayList<String>();
+	private Map<String,Integer> stringIndex = new HashMap<String,Integer>();
+	
+	// The events using indices in the string pool
+	private ByteArrayOutputStream eventBytes = new ByteArrayOutputStream();
+	private DataOutputStream events = new DataOutputStream(eventBytes);
+	
+	private SymbolsCompiler() {
+	}
+
+	/** Compile an XML file to a binary file
+	 * 
+	 * @param args the XML file and the binary file
+	 */
+	public static void main(String[] args) {
+		if (args.length!=2) {
+			System.err.println("Usage: java writer2latex.latex.i18n.SymbolsCompiler <xml file> <binary file>");
+			System.exit(1);
+		}
+		try {
+			SymbolsCompiler compiler = new SymbolsCompiler();
+			SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+			parser.parse(new File(args[0]), compiler);
+			FileOutputStream os = new FileOutputStream(args[1]);
+			try {
+				compiler.write(os);
+			}
+			finally {
+				os.close();
+			}
+		}
+		catch (Exception e) {
+			System.err.println("Failed to compile "+args[0]+": "+e.getMessage());
+			System.exit(1);
+		}
+	}
+	
+	/** Read a compiled symbol file and send the elements to a SAX handler
+	 * 
+	 * @param is the input stream to read the compiled file from (the stream is not closed)
+	 * @param handler the handler to receive the elements
+	 * @throws IOException if the stream could not be read or is not a compiled symbol file
+	 * @throws SAXException if the handler throws an exception
+	 */
+	static void read(InputStream is, DefaultHandler handler) throws IOException, SAXException {
+		// Read the entire file in one go
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(65536);
+		byte[] buf = new byte[65536];
+		int nLen;
+		while ((nLen = is.read(buf))>0) {
+			bytes.write(buf, 0, nLen);
+		}
+		DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		
+		if (dis.readInt()!=MAGIC || dis.readShort()!=VERSION) {
+			throw new IOException("Not a compiled symbol file");
+		}
+		int nCount = dis.readInt();
+		String[] pool = new String[nCount];
+		for (int i=0; i<nCount; i++) {
+			pool[i] = dis.readUTF();
+		}
+		
+		AttributesImpl attributes = new AttributesImpl();
+		handler.startDocument();
+		int nEvent;
+		while ((nEvent = dis.readByte())!=END_DOCUMENT) {
+			String sName = pool[dis.readUnsignedShort()];
+			if (nEvent==START_ELEMENT) {
+				attributes.clear();
+				int nAttributes = dis.readUnsignedByte();
+				for (int i=0; i<nAttributes; i++) {
+					String sAttrName = pool[dis.readUnsignedShort()];
+					attributes.addAttribute("", sAttrName, sAttrName, "CDATA", pool[dis.readUnsignedShort()]);
+				}
+				handler.startElement("", sName, sName, attributes);
+			}
+			else {
+				handler.endElement("", sName, sName);
+			}
+		}
+		handler.endDocument();
+	}
+	
+	@Override public void startElement(String sNamespace, String sLocalName, String sQName, Attributes attributes)
+			throws SAXException {
+		try {
+			events.writeByte(START_ELEMENT);
+			writeString(sQName);
+			int nAttributes = attributes.getLength();
+			if (nAttributes>255) {
+				throw new SAXException("Too many attributes in "+sQName);
+			}
+			events.writeByte(nAttributes);
+			for (int i=0; i<nAttributes; i++) {
+				writeString(attributes.getQName(i));
+				writeString(attributes.getValue(i));
+			}
+		}
+		catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+	
+	@Override public void endElement(String sNamespace, String sLocalName, String sQName) throws SAXException {
+		try {
+			events.writeByte(END_ELEMENT);
+			writeString(sQName);
+		}
+		catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+	
+	private void writeString(String s) throws IOException {
+		Integer index = stringIndex.get(s);
+		if (index==null) {
+			index = strings.size();
+			strings.add(s);
+			stringIndex.put(s, index);
+		}
+		events.writeShort(index);
+	}
+	
+	private void write(FileOutputStream os) throws IOException {
+		if (strings.size()>65535) {
+			throw new IOException("Too many distinct strings");
+		}
+		events.writeByte(END_DOCUMENT);
+		DataOutputStream dos = new DataOutputStream(os);
+		dos.writeInt(MAGIC);
+		dos.writeShort(VERSION);
+		dos.writeInt(strings.size());
+		for (String s : strings) {
+			dos.writeUTF(s);
+		}
+		events.flush();
+		eventBytes.writeTo(dos);
+		dos.flush();
+	}
+
+}
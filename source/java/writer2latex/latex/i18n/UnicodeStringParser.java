@@ -70,6 +70,12 @@ class UnicodeStringParser {
         return true;
     }
 	
+    // Get the index of the next character to parse
+    protected int getIndex() { return i; }
+	
+    // Continue parsing from another index
+    protected void setIndex(int i) { this.i = i; }
+	
     protected char getChar() { return c; }
 
     protected boolean hasCombiningChar() { return cc!='\u0000'; }
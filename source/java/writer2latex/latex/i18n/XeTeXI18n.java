@@ -152,9 +152,42 @@ public class XeTeXI18n extends I18n {
      *  @return the LaTeX string
      */
     public String convert(String s, boolean bMathMode, String sLang){
+    	if (cache!=null && cache.accepts(s)) {
+    		// The conversion does not depend on the language and has no side effects
+    		ConversionCache.Entry entry = cache.get(s,bMathMode,null,null);
+    		if (entry!=null) {
+    			return entry.getResult();
+    		}
+    		String sResult = convertString(s,bMathMode);
+    		cache.put(s,bMathMode,null,null,sResult,0);
+    		return sResult;
+    	}
+    	return convertString(s,bMathMode);
+    }
+    
+    /** Convert a string of characters into LaTeX and append the result to a buffer
+     *  @param s the source string
+     *  @param bMathMode true if the string should be rendered in math mode
+     *  @param sLang the ISO language of the string
+     *  @param buf the buffer to append the LaTeX string to
+     */
+    public void convert(String s, boolean bMathMode, String sLang, StringBuilder buf) {
+    	if (cache!=null && cache.accepts(s)) {
+    		buf.append(convert(s,bMathMode,sLang));
+    	}
+    	else {
+    		convertString(s,bMathMode,buf);
+    	}
+    }
+    
+    private String convertString(String s, boolean bMathMode) {
     	StringBuilder buf = new StringBuilder();
+    	convertString(s,bMathMode,buf);
+    	return buf.toString();
+    }
+    
+    private void convertString(String s, boolean bMathMode, StringBuilder buf) {
     	int nLen = s.length();
-        char c;
         if (bMathMode) {
         	// No string replace or writing direction in math mode
         	for (int i=0; i<nLen; i++) {
@@ -170,18 +203,76 @@ public class XeTeXI18n extends I18n {
         			i += node.getInputLength();
         		}
         		else {
-        			c = s.charAt(i++);
-        			convert (c,buf);
+        			convert(s.charAt(i++),buf);
         		}
         	}
         }
         else {
-        	// TODO: Add support for string replace
-			Bidi bidi = new Bidi(s,Bidi.DIRECTION_RIGHT_TO_LEFT);
-			int nCurrentLevel = bidi.getBaseLevel();
+        	// If the string is written in one direction only, we do not need a full bidi analysis:
+        	// Right-to-left text stays at the base level, while left-to-right text from the first to the last
+        	// strong character is raised one level. Otherwise we fall back to the bidi algorithm
+        	Bidi bidi = null;
+        	int nLTRStart = -1;
+        	int nLTREnd = 0;
+        	boolean bRTL = false;
+        	for (int i=0; i<nLen && bidi==null; i++) {
+        		switch (getDirectionality(s.charAt(i))) {
+        		case Character.DIRECTIONALITY_LEFT_TO_RIGHT:
+        			if (bRTL) {
+        				bidi = new Bidi(s,Bidi.DIRECTION_RIGHT_TO_LEFT);
+        			}
+        			else {
+        				if (nLTRStart<0) { nLTRStart = i; }
+        				nLTREnd = i+1;
+        			}
+        			break;
+        		case Character.DIRECTIONALITY_EUROPEAN_NUMBER:
+        			// A number is left-to-right if it follows left-to-right text
+        			if (nLTRStart<0) {
+        				bidi = new Bidi(s,Bidi.DIRECTION_RIGHT_TO_LEFT);
+        			}
+        			else {
+        				// Terminators (such as %) following the number belong to the number
+        				nLTREnd = i+1;
+        				while (nLTREnd<nLen && getDirectionality(s.charAt(nLTREnd))
+        						==Character.DIRECTIONALITY_EUROPEAN_NUMBER_TERMINATOR) {
+        					nLTREnd++;
+        				}
+        			}
+        			break;
+        		case Character.DIRECTIONALITY_RIGHT_TO_LEFT:
+        		case Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC:
+        		case Character.DIRECTIONALITY_NONSPACING_MARK:
+        		case Character.DIRECTIONALITY_BOUNDARY_NEUTRAL:
+        			if (nLTRStart>=0) {
+        				bidi = new Bidi(s,Bidi.DIRECTION_RIGHT_TO_LEFT);
+        			}
+        			else {
+        				bRTL = true;
+        			}
+        			break;
+        		case Character.DIRECTIONALITY_WHITESPACE:
+        		case Character.DIRECTIONALITY_OTHER_NEUTRALS:
+        		case Character.DIRECTIONALITY_COMMON_NUMBER_SEPARATOR:
+        		case Character.DIRECTIONALITY_EUROPEAN_NUMBER_SEPARATOR:
+        		case Character.DIRECTIONALITY_EUROPEAN_NUMBER_TERMINATOR:
+        			break;
+        		default:
+        			bidi = new Bidi(s,Bidi.DIRECTION_RIGHT_TO_LEFT);
+        		}
+        	}
+        	
+			int nCurrentLevel = bidi!=null ? bidi.getBaseLevel() : 1;
 			int nNestingLevel = 0;
-			for (int i=0; i<nLen; i++) {
-				int nLevel = bidi.getLevelAt(i);
+			int i = 0;
+			while (i<nLen) {
+				int nLevel;
+				if (bidi!=null) {
+					nLevel = bidi.getLevelAt(i);
+				}
+				else {
+					nLevel = i>=nLTRStart && i<nLTREnd ? 2 : 1;
+				}
 				if (nLevel>nCurrentLevel) {
 					if (nLevel%2==0) { // even is LTR
 						buf.append(sLTRCommand).append("{");
@@ -197,15 +288,30 @@ public class XeTeXI18n extends I18n {
 					nCurrentLevel=nLevel;
 					nNestingLevel--;
 				}
-				convert(s.charAt(i),buf);
+				// A replacement is typeset in the direction of the first character
+				ReplacementTrieNode node = stringReplace.get(s,i,nLen);
+				if (node!=null) {
+					buf.append(node.getLaTeXCode());
+					i += node.getInputLength();
+				}
+				else {
+					convert(s.charAt(i++),buf);
+				}
 			}
 			while (nNestingLevel>0) {
 				buf.append("}");
 				nNestingLevel--;
 			}
 		}
-        
-        return buf.toString();
+    }
+    
+    // Get the bidi character type of a character, as used by java.text.Bidi
+    private static byte getDirectionality(char c) {
+    	if (c>='\u20BA' && c<='\u20CF') {
+    		// The bidi implementation in Java 8 does not know these (newer) currency symbols
+    		return Character.DIRECTIONALITY_UNDEFINED;
+    	}
+    	return Character.getDirectionality(c);
     }
     
     private void convert(char c, StringBuilder buf) {
@@ -26,15 +26,25 @@
 
 package writer2latex.office;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
 import writer2latex.util.SimpleZipReader;
 
 /**
  * This class represents an embedded object with a binary representation in an ODF package document
  */
 public class EmbeddedBinaryObject extends EmbeddedObject {
+	
+	private static final int BUFFERSIZE = 8192;
     
     /** The object's binary representation. */
     private byte[] blob = null;
+    
+    /** The package containing the object, or null if the data has been read or disposed */
+    private SimpleZipReader source = null;
         
     /**
      * Package private constructor for use when reading an object from a 
@@ -47,19 +57,111 @@ public class EmbeddedBinaryObject extends EmbeddedObject {
      */    
     protected EmbeddedBinaryObject(String sName, String sType, OfficeDocument doc, SimpleZipReader source) {
     	super(sName,sType,doc);
-    	blob = source.getEntry(sName);
+    	// Defer reading the data until required
+    	this.source = source;
+    }
+    
+    /**
+     * Package private constructor for use when reading an object from a 
+     * flat XML file
+     *
+     * @param   sName    The name of the object.
+     * @param   sType    The MIME-type of the object.
+     * @param   doc      The document containing the object.
+     * @param   blob     The data of the object
+     */    
+    protected EmbeddedBinaryObject(String sName, String sType, OfficeDocument doc, byte[] blob) {
+    	super(sName,sType,doc);
+    	this.blob = blob;
     }
     
-    /** Get the binary data for this object
+    /** Get the binary data for this object. The data is read from the package on the first call.
      *
      * @return  A <code>byte</code> array containing the object's data.
      */
     public byte[] getBinaryData() {
+    	if (source!=null) {
+    		try {
+    			blob = source.getEntry(getName());
+    		}
+    		catch (IOException e) {
+    			// Treat as missing data
+    		}
+    		source = null;
+    	}
         return blob;
     }    
     
+    /** Get the first bytes of the binary data for this object, eg. to determine the type of the data.
+     *  If the data has not been read yet, only the requested bytes are read from the package.
+     *
+     * @param nMaxLen the maximal number of bytes to return
+     * @return a <code>byte</code> array containing at most <code>nMaxLen</code> bytes, or null if the data
+     * is not available
+     */
+    public byte[] getBinaryHeader(int nMaxLen) {
+    	if (source!=null) {
+    		try {
+    			InputStream is = source.getEntryStream(getName());
+    			if (is!=null) {
+    				try {
+    					byte[] header = new byte[nMaxLen];
+    					int nLen = 0;
+    					int nRead;
+    					while (nLen<nMaxLen && (nRead=is.read(header, nLen, nMaxLen-nLen))>0) {
+    						nLen+=nRead;
+    					}
+    					return nLen<nMaxLen ? Arrays.copyOf(header, nLen) : header;
+    				}
+    				finally {
+    					is.close();
+    				}
+    			}
+    		}
+    		catch (IOException e) {
+    			// Treat as missing data
+    		}
+    		return null;
+    	}
+    	if (blob!=null && blob.length>nMaxLen) {
+    		return Arrays.copyOf(blob, nMaxLen);
+    	}
+    	return blob;
+    }
+    
+    /** Write the binary data for this object to an <code>OutputStream</code>. If the data has not been read yet,
+     *  it is copied directly from the package without reading all of it into memory.
+     *
+     * @param os the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(OutputStream os) throws IOException {
+    	if (source!=null) {
+    		InputStream is = source.getEntryStream(getName());
+    		if (is!=null) {
+    			try {
+    				byte[] buffer = new byte[BUFFERSIZE];
+    				int nLen;
+    				while ((nLen=is.read(buffer))>0) {
+    					os.write(buffer, 0, nLen);
+    				}
+    			}
+    			finally {
+    				is.close();
+    			}
+    		}
+    	}
+    	else if (blob!=null) {
+    		os.write(blob);
+    	}
+    }
+    
     public void dispose() {
     	super.dispose();
+    	if (source!=null) {
+    		source.removeEntry(getName());
+    		source = null;
+    	}
     	blob = null;
     }
 
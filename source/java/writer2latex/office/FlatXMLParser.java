@@ -0,0 +1,197 @@
+/************************************************************************
+ *
+ *  FlatXMLParser.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+package writer2latex.office;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+import writer2latex.util.SimpleXMLParser;
+
+/** This class parses an ODF document in flat XML format. Images contained in office:binary-data elements
+ *  are decoded while parsing and are not included in the DOM tree. Instead the draw:image element gets
+ *  an xlink:href attribute referring to the decoded image, as if the image was contained in a package.
+ */
+class FlatXMLParser extends SimpleXMLParser {
+	
+	// Initial size of the buffer for an image
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+	
+	// Prefix for the names of the decoded images
+	private static final String BINARY_DATA_PATH = "binary-data/";
+	
+	// Values of the characters in the base64 alphabet, -1 for other characters
+	private static final byte[] BASE64 = new byte[128];
+	
+	static {
+		for (int i=0; i<128; i++) {
+			BASE64[i] = -1;
+		}
+		String sAlphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for (int i=0; i<64; i++) {
+			BASE64[sAlphabet.charAt(i)] = (byte) i;
+		}
+	}
+	
+	// The decoded images
+	private Map<String,byte[]> binaryData = new HashMap<String,byte[]>();
+	
+	// The name of the last element started, if it has not ended yet
+	private String sLastElement = null;
+	
+	// Does the last draw:image element have an xlink:href attribute?
+	private boolean bImageHasHref = false;
+	
+	// Decoding state, buffer is null when we are not in an office:binary-data element to decode
+	private byte[] buffer = null;
+	private int nBufferLen = 0;
+	private int nQuantum = 0;
+	private int nSextets = 0;
+	private boolean bPadding = false;
+	
+	/** Create a new <code>FlatXMLParser</code>
+	 * 
+	 * @param bCompact true if a compact DOM tree should be created
+	 */
+	FlatXMLParser(boolean bCompact) {
+		super(bCompact);
+	}
+	
+	/** Parse a flat XML document. The result is available from {@link #getDOM()} and {@link #getBinaryData()}
+	 * 
+	 * @param is the input stream to parse
+	 * @throws IOException if an error occurs reading the input stream
+	 * @throws SAXException if an error occurs parsing the stream
+	 */
+	void read(InputStream is) throws IOException, SAXException {
+		parse(is,this);
+	}
+	
+	/** Get the images decoded by this parser
+	 * 
+	 * @return a map from names to image data
+	 */
+	Map<String,byte[]> getBinaryData() {
+		return binaryData;
+	}
+	
+	@Override public void startElement(String nameSpace, String localName, String qName, Attributes attributes){
+		if (qName.equals(XMLString.OFFICE_BINARY_DATA) && XMLString.DRAW_IMAGE.equals(sLastElement) && !bImageHasHref) {
+			buffer = new byte[INITIAL_BUFFER_SIZE];
+			nBufferLen = 0;
+			nQuantum = 0;
+			nSextets = 0;
+			bPadding = false;
+			sLastElement = null;
+		}
+		else {
+			if (qName.equals(XMLString.DRAW_IMAGE)) {
+				String sHref = attributes.getValue(XMLString.XLINK_HREF);
+				bImageHasHref = sHref!=null && sHref.length()>0;
+			}
+			sLastElement = qName;
+			super.startElement(nameSpace, localName, qName, attributes);
+		}
+	}
+	
+	@Override public void endElement(String nameSpace, String localName, String qName) throws SAXException {
+		sLastElement = null;
+		if (buffer!=null) {
+			// This must be the end of office:binary-data
+			ensureCapacity(2);
+			if (nSextets==2) {
+				buffer[nBufferLen++] = (byte) (nQuantum>>4);
+			}
+			else if (nSextets==3) {
+				buffer[nBufferLen++] = (byte) (nQuantum>>10);
+				buffer[nBufferLen++] = (byte) (nQuantum>>2);
+			}
+			byte[] bytes = Arrays.copyOf(buffer, nBufferLen);
+			buffer = null;
+			String sName = BINARY_DATA_PATH+createId(bytes);
+			binaryData.put(sName, bytes);
+			getBuilder().setAttribute(XMLString.XLINK_HREF, sName);
+		}
+		else {
+			super.endElement(nameSpace, localName, qName);
+		}
+	}
+	
+	@Override public void characters(char[] characters, int nStart, int nLength) throws SAXException {
+		if (buffer!=null) {
+			// Each 4 characters are decoded to 3 bytes
+			ensureCapacity(3*(nLength/4+1));
+			int nEnd = nStart+nLength;
+			for (int i=nStart; i<nEnd && !bPadding; i++) {
+				char c = characters[i];
+				if (c=='=') {
+					bPadding = true;
+				}
+				else if (c<128 && BASE64[c]>=0) {
+					nQuantum = (nQuantum<<6) | BASE64[c];
+					if (++nSextets==4) {
+						buffer[nBufferLen++] = (byte) (nQuantum>>16);
+						buffer[nBufferLen++] = (byte) (nQuantum>>8);
+						buffer[nBufferLen++] = (byte) nQuantum;
+						nQuantum = 0;
+						nSextets = 0;
+					}
+				}
+			}
+		}
+		else {
+			super.characters(characters, nStart, nLength);
+		}
+	}
+	
+	private void ensureCapacity(int nCount) {
+		if (nBufferLen+nCount>buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(2*buffer.length, nBufferLen+nCount));
+		}
+	}
+	
+	// Identify an image by its content, such that images occurring several times are identified
+	private String createId(byte[] bytes) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("MD5");
+			return DatatypeConverter.printHexBinary(md.digest(bytes));
+		} catch (NoSuchAlgorithmException e) {
+			// MD5 is always available
+			return Integer.toString(binaryData.size());
+		}
+	}
+	
+}
@@ -26,6 +26,9 @@
 
 package writer2latex.office;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -54,6 +57,46 @@ public class MetaData implements writer2latex.api.MetaData {
     // User-defined
     private Map<String,String> userdefined = new HashMap<String,String>();
  
+    /** <p>Read the meta data of a document without reading the content of the document.
+     *  If the meta data does not specify a language, the language of the default paragraph style is used.
+     *  (Note that a converter uses the language of the majority of the paragraph styles in this case.)</p>
+     *  @param file the document in package or flat XML format
+     *  @return the meta data
+     *  @throws IOException if an error occurs reading the document
+     */
+    public static MetaData read(File file) throws IOException {
+        OfficeDocument oooDoc = new OfficeDocument();
+        oooDoc.readMetaData(file);
+        return read(oooDoc);
+    }
+
+    /** <p>Read the meta data of a document without reading the content of the document.
+     *  If the meta data does not specify a language, the language of the default paragraph style is used.
+     *  (Note that a converter uses the language of the majority of the paragraph styles in this case.)</p>
+     *  @param is the document in package or flat XML format
+     *  @return the meta data
+     *  @throws IOException if an error occurs reading the document
+     */
+    public static MetaData read(InputStream is) throws IOException {
+        OfficeDocument oooDoc = new OfficeDocument();
+        oooDoc.readMetaData(is);
+        return read(oooDoc);
+    }
+    
+    private static MetaData read(OfficeDocument oooDoc) throws IOException {
+        try {
+            MetaData metaData = new MetaData(oooDoc);
+            if (metaData.sLanguage.length()==0) {
+                String sLanguage = oooDoc.getDefaultLanguage();
+                if (sLanguage!=null) { metaData.sLanguage = sLanguage; }
+            }
+            return metaData;
+        }
+        finally {
+            oooDoc.close();
+        }
+    }
+
     /** <p>Construct a new instance from an OOo Writer document.</p>
      *  @param oooDoc is the OOo document
      */
@@ -61,6 +104,7 @@ public class MetaData implements writer2latex.api.MetaData {
         // get the DOM (either package or flat)
         Document dom = oooDoc.getMetaDOM();
         if (dom==null) { dom = oooDoc.getContentDOM(); }
+        if (dom==null) { return; } // no meta.xml in the package
 
         // get the office:meta element
         NodeList list = dom.getElementsByTagName(XMLString.OFFICE_META);
@@ -27,23 +27,34 @@
 package writer2latex.office;
 
 import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.zip.ZipException;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
+import writer2latex.util.ElementHandler;
+import writer2latex.util.Misc;
 import writer2latex.util.SimpleXMLParser;
 import writer2latex.util.SimpleZipReader;
+import writer2latex.util.XMLParserPool;
 
 /**
  *  This class implements reading of ODF files from various sources
@@ -78,6 +89,86 @@ public class OfficeDocument {
 	/** Collection to keep track of the embedded objects in the document. */
 	private Map<String, EmbeddedObject> embeddedObjects = null;
 	
+	/** The package providing the contents of the embedded objects. */
+	private SimpleZipReader zip = null;
+	
+	/** Use compact DOM trees for the content and styles? */
+	private boolean bCompactDOM = false;
+	
+	/** The number of bytes that may be used to hold the entries of a package document read from a stream. */
+	private long nMemoryBudget = -1;
+	
+	/** Read the text body of a package document on demand? */
+	private boolean bStreamContent = false;
+	
+	/** The (empty) text body element if the text body is read on demand. */
+	private Element textBody = null;
+	
+	/** Specify that the document should be read into compact DOM trees. A compact DOM tree uses considerably
+	 *  less memory than a standard DOM tree, but only supports reading and simple modifications of the tree.
+	 *  Embedded objects are always read into standard DOM trees.
+	 * 
+	 * @param bCompactDOM true if compact DOM trees should be used
+	 */
+	public void setCompactDOM(boolean bCompactDOM) {
+		this.bCompactDOM = bCompactDOM;
+	}
+	
+	/** Define the number of bytes that may be used to hold the entries of a package document which is read
+	 *  from a stream. Entries which do not fit within the budget are spooled to temporary files, but are
+	 *  otherwise available as usual (including as embedded objects) until {@link #dispose()} is called. A package document read from a file
+	 *  is not affected by the budget, as the entries are read from the file on demand.
+	 * 
+	 * @param nBytes the budget in bytes, or a negative number to keep all entries in memory (the default)
+	 */
+	public void setMemoryBudget(long nBytes) {
+		this.nMemoryBudget = nBytes;
+	}
+	
+	/** Specify that the text body of a package document should be read on demand. In this case the content DOM
+	 *  will contain an empty office:text element, and the children of this element must be read one at a time
+	 *  using {@link #streamContent(ElementHandler)}. This allows a converter to convert large documents without
+	 *  holding the complete content in memory. Documents in flat XML format and documents which are not text
+	 *  documents are always read completely.
+	 * 
+	 * @param bStreamContent true if the text body should be read on demand
+	 */
+	public void setStreamContent(boolean bStreamContent) {
+		this.bStreamContent = bStreamContent;
+	}
+	
+	/** Is the text body of this document read on demand?
+	 * 
+	 * @return true if the text body must be read using {@link #streamContent(ElementHandler)}
+	 */
+	public boolean isContentStreamed() {
+		return textBody!=null;
+	}
+	
+	/** Read the text body of the document one element at a time. Each top level element is appended to the
+	 *  office:text element of the content DOM and passed to the handler. The handler should remove the elements
+	 *  when they are no longer needed. This method may be called several times to read the text body again.
+	 * 
+	 * @param handler the handler to receive the elements
+	 * @throws IOException if an error occurs reading the document, or if the handler fails
+	 */
+	public void streamContent(ElementHandler handler) throws IOException {
+		if (textBody!=null) {
+			InputStream is = zip.getEntryStream(CONTENTXML);
+			if (is == null) {
+				throw new IOException("Entry content.xml not found in file");
+			}
+			try {
+				SimpleXMLParser.parse(is, textBody, handler);
+			} catch (SAXException e) {
+				throw new IOException(e);
+			}
+			finally {
+				is.close();
+			}
+		}
+	}
+	
 	/** Package or flat format? 
 	 *  @return true if the document is in package format, false if it's flat XML
 	 */
@@ -174,6 +265,26 @@ public class OfficeDocument {
 		return null;
 	}
 	
+	/**
+	 * Release the file resources held by this document. The embedded objects can still be read
+	 * after calling this method, but doing so will acquire the resources again.
+	 */
+	public void close() {
+		if (zip!=null) {
+			zip.close();
+		}
+	}
+	
+	/**
+	 * Release all resources held by this document, including temporary files. The embedded objects
+	 * cannot be read after calling this method.
+	 */
+	public void dispose() {
+		if (zip!=null) {
+			zip.dispose();
+		}
+	}
+	
 	protected void removeEmbeddedObject(String sName) {
 		if (sName!=null && embeddedObjects!=null && embeddedObjects.containsKey(sName)) {
 			embeddedObjects.remove(sName);
@@ -192,6 +303,8 @@ public class OfficeDocument {
 		manifestDoc = null;
 		bIsPackageFormat = false;
 		embeddedObjects = null;
+		zip = null;
+		textBody = null;
 	}
 
 
@@ -221,71 +334,359 @@ public class OfficeDocument {
 		}
 	}
 
-	private void readZip(InputStream is) throws IOException {
-		SimpleZipReader zip = new SimpleZipReader();
-		zip.read(is);
-
-		byte contentBytes[] = zip.getEntry(CONTENTXML);
-		if (contentBytes == null) {
-			throw new IOException("Entry content.xml not found in file");
+	/**
+	 *  Read the Office <code>Document</code> from the given <code>File</code>.
+	 *  Performs simple type detection to determine package or flat format.
+	 *  A package document is read with random access, such that only the entries
+	 *  actually used are inflated. If random access fails, the file is read as a stream.
+	 *
+	 *  @param  file  Office document <code>File</code>.
+	 *
+	 *  @throws  IOException  If any I/O error occurs.
+	 */
+	public void read(File file) throws IOException {
+		if (MIMETypes.ZIP.equals(MIMETypes.getMagicMIMEType(readMagicBytes(file)))) {
+			SimpleZipReader zip = new SimpleZipReader();
+			boolean bSuccess = false;
+			try {
+				zip.read(file);
+				readZip(zip);
+				bSuccess = true;
+				return;
+			}
+			catch (ZipException e) {
+				// Not readable with random access, fall back to reading the stream
+			}
+			finally {
+				if (!bSuccess) {
+					zip.close();
+				}
+			}
 		}
+		InputStream fis = new FileInputStream(file);
 		try {
-			contentDoc = parse(contentBytes);
-		} catch (SAXException ex) {
-			throw new IOException(ex);
+			read(fis);
+		}
+		finally {
+			fis.close();
+		}
+	}
+
+	// Read the first 4 bytes of a file to detect flat or zip format
+	private static byte[] readMagicBytes(File file) throws IOException {
+		byte[] bytes = new byte[4];
+		InputStream is = new FileInputStream(file);
+		try {
+			int nLen = 0;
+			int nRead;
+			while (nLen<bytes.length && (nRead=is.read(bytes, nLen, bytes.length-nLen))>0) {
+				nLen+=nRead;
+			}
+		}
+		finally {
+			is.close();
+		}
+		return bytes;
+	}
+
+	/**
+	 *  Read only the meta data of an Office <code>Document</code> from the given <code>InputStream</code>.
+	 *  For a package document only meta.xml and styles.xml are kept, and the content DOM will be null.
+	 *  For a document in flat XML format, the content DOM will contain everything but the office:body element.
+	 *  Performs simple type detection to determine package or flat format.
+	 *
+	 *  @param  is  Office document <code>InputStream</code>.
+	 *
+	 *  @throws  IOException  If any I/O error occurs.
+	 */
+	public void readMetaData(InputStream is) throws IOException {
+		BufferedInputStream inbuf = new BufferedInputStream(is);
+		byte[] bytes = new byte[4];
+		inbuf.mark(4);
+		inbuf.read(bytes);
+		inbuf.reset();
+		if (MIMETypes.ZIP.equals(MIMETypes.getMagicMIMEType(bytes))) {
+			SimpleZipReader zip = new SimpleZipReader();
+			Set<String> names = new HashSet<String>();
+			names.add(METAXML);
+			names.add(STYLESXML);
+			zip.read(inbuf,names);
+			readMetaZip(zip);
+		}
+		else {
+			readMetaFlat(inbuf);
 		}
+	}
 
-		byte styleBytes[] = zip.getEntry(STYLESXML);
-		if (styleBytes != null) {
+	/**
+	 *  Read only the meta data of an Office <code>Document</code> from the given <code>File</code>.
+	 *  For a package document only meta.xml is inflated, and the content DOM will be null.
+	 *  For a document in flat XML format, the content DOM will contain everything but the office:body element.
+	 *  Performs simple type detection to determine package or flat format.
+	 *
+	 *  @param  file  Office document <code>File</code>.
+	 *
+	 *  @throws  IOException  If any I/O error occurs.
+	 */
+	public void readMetaData(File file) throws IOException {
+		if (MIMETypes.ZIP.equals(MIMETypes.getMagicMIMEType(readMagicBytes(file)))) {
+			SimpleZipReader zip = new SimpleZipReader();
+			boolean bSuccess = false;
 			try {
-				styleDoc = parse(styleBytes);
-			} catch (SAXException ex) {
-				throw new IOException(ex);
+				zip.read(file);
+				readMetaZip(zip);
+				bSuccess = true;
+				return;
+			}
+			catch (ZipException e) {
+				// Not readable with random access, fall back to reading the stream
+			}
+			finally {
+				if (!bSuccess) {
+					zip.close();
+				}
+			}
+		}
+		InputStream fis = new FileInputStream(file);
+		try {
+			readMetaData(fis);
+		}
+		finally {
+			fis.close();
+		}
+	}
+	
+	/**
+	 *  Get the language of the default paragraph style of the document. If the document has been read using
+	 *  {@link #readMetaData(File)} or {@link #readMetaData(InputStream)}, styles.xml is only read up to the
+	 *  default paragraph style.
+	 *  
+	 *  @return the language, or null if the default paragraph style does not specify a language
+	 *  
+	 *  @throws  IOException  If any I/O error occurs.
+	 */
+	public String getDefaultLanguage() throws IOException {
+		if (styleDoc==null && contentDoc==null && zip!=null) {
+			InputStream is = zip.getEntryStream(STYLESXML);
+			if (is!=null) {
+				DefaultLanguageHandler handler = new DefaultLanguageHandler();
+				try {
+					SAXParser parser = XMLParserPool.getSAXParser();
+					try {
+						parser.parse(is, handler);
+					}
+					finally {
+						XMLParserPool.releaseSAXParser(parser);
+					}
+				}
+				catch (SAXException e) {
+					if (e!=DefaultLanguageHandler.DONE) {
+						throw new IOException(e);
+					}
+				}
+				catch (ParserConfigurationException e) {
+					throw new IOException(e);
+				}
+				finally {
+					is.close();
+				}
+				return handler.sLanguage;
+			}
+			return null;
+		}
+		Document dom = styleDoc!=null ? styleDoc : contentDoc;
+		if (dom!=null) {
+			NodeList list = dom.getElementsByTagName(XMLString.STYLE_DEFAULT_STYLE);
+			int nLen = list.getLength();
+			for (int i=0; i<nLen; i++) {
+				Element style = (Element) list.item(i);
+				if ("paragraph".equals(style.getAttribute(XMLString.STYLE_FAMILY))) {
+					Element props = Misc.getChildByTagName(style, XMLString.STYLE_TEXT_PROPERTIES);
+					if (props==null) { // Old format
+						props = Misc.getChildByTagName(style, XMLString.STYLE_PROPERTIES);
+					}
+					return props!=null ? Misc.getAttribute(props, XMLString.FO_LANGUAGE) : null;
+				}
+			}
+		}
+		return null;
+	}
+	
+	// SAX handler to find the language of the default paragraph style. The parsing is stopped with the
+	// exception DONE when the default paragraph style has been read (or cannot occur anymore)
+	private static class DefaultLanguageHandler extends DefaultHandler {
+		static final SAXException DONE = new SAXException("Found the default paragraph style");
+		
+		private boolean bInDefaultParStyle = false;
+		String sLanguage = null;
+		
+		@Override public void startElement(String sNamespace, String sLocalName, String sQName, Attributes attributes)
+				throws SAXException {
+			if (sQName.equals(XMLString.STYLE_DEFAULT_STYLE)) {
+				bInDefaultParStyle = "paragraph".equals(attributes.getValue(XMLString.STYLE_FAMILY));
+			}
+			else if (bInDefaultParStyle &&
+					(sQName.equals(XMLString.STYLE_TEXT_PROPERTIES) || sQName.equals(XMLString.STYLE_PROPERTIES))) {
+				sLanguage = attributes.getValue(XMLString.FO_LANGUAGE);
+				throw DONE;
+			}
+			else if (sQName.equals(XMLString.OFFICE_AUTOMATIC_STYLES) || sQName.equals(XMLString.OFFICE_MASTER_STYLES)) {
+				throw DONE;
 			}
 		}
 
+		@Override public void endElement(String sNamespace, String sLocalName, String sQName) throws SAXException {
+			if (bInDefaultParStyle && sQName.equals(XMLString.STYLE_DEFAULT_STYLE)) {
+				throw DONE;
+			}
+		}
+		
+		// We don't need - and in fact should avoid - any external entities
+		@Override public InputSource resolveEntity(String publicID, String systemID) throws SAXException {
+			return new InputSource(new StringReader(""));
+		}
+	}
+	
+	private void readMetaZip(SimpleZipReader zip) throws IOException {
 		byte metaBytes[] = zip.getEntry(METAXML);
-		if (metaBytes != null) {
-			try {
-				metaDoc = parse(metaBytes);
-			} catch (SAXException ex) {
-				throw new IOException(ex);
+		try {
+			metaDoc = metaBytes!=null ? parse(metaBytes) : null;
+		} catch (SAXException e) {
+			throw new IOException(e);
+		}
+		contentDoc = null;
+		styleDoc = null;
+		manifestDoc = null;
+		bIsPackageFormat = true;
+		embeddedObjects = null;
+		this.zip = zip;
+		textBody = null;
+	}
+	
+	private void readMetaFlat(InputStream is) throws IOException {
+		try {
+			contentDoc = SimpleXMLParser.parse(is,false,XMLString.OFFICE_BODY);
+		} catch (SAXException e) {
+			throw new IOException(e);
+		}
+		styleDoc = null;
+		metaDoc = null;
+		manifestDoc = null;
+		bIsPackageFormat = false;
+		embeddedObjects = null;
+		zip = null;
+		textBody = null;
+	}
+
+	private void readZip(InputStream is) throws IOException {
+		SimpleZipReader zip = new SimpleZipReader();
+		zip.setMemoryBudget(nMemoryBudget);
+		boolean bSuccess = false;
+		try {
+			zip.read(is);
+			readZip(zip);
+			bSuccess = true;
+		}
+		finally {
+			if (!bSuccess) {
+				zip.dispose();
 			}
 		}
+	}
 
-		byte manifestBytes[] = zip.getEntry(MANIFESTXML);
-		if (manifestBytes != null) {
-			try {
-				manifestDoc = parse(manifestBytes);
-			} catch (SAXException ex) {
-				throw new IOException(ex);
+	private void readZip(SimpleZipReader zip) throws IOException {
+		// If the text body is read on demand, the content is read from the package when needed
+		InputStream contentStream = bStreamContent ? zip.getEntryStream(CONTENTXML) : null;
+		byte contentBytes[] = bStreamContent ? null : zip.getEntry(CONTENTXML);
+		if (contentStream == null && contentBytes == null) {
+			throw new IOException("Entry content.xml not found in file");
+		}
+		
+		textBody = null;
+		try {
+			if (contentStream!=null) {
+				try {
+					contentDoc = SimpleXMLParser.parse(contentStream,bCompactDOM,XMLString.OFFICE_TEXT);
+				}
+				finally {
+					contentStream.close();
+				}
+				NodeList list = contentDoc.getElementsByTagName(XMLString.OFFICE_TEXT);
+				if (list.getLength()>0) {
+					textBody = (Element) list.item(0);
+				}
 			}
+			else {
+				contentDoc = parse(contentBytes,bCompactDOM);
+			}
+		} catch (SAXException ex) {
+			throw new IOException(ex);
 		}
 		
+		styleDoc = parsePart(zip.getEntry(STYLESXML));
+		metaDoc = parsePart(zip.getEntry(METAXML));
+		manifestDoc = parsePart(zip.getEntry(MANIFESTXML));
+		
 		bIsPackageFormat = true;
+		this.zip = zip;
 		getEmbeddedObjects(zip);
+		
+		// The package is kept for the embedded objects (and the text body, if read on demand),
+		// hence all other entries (thumbnails, settings etc.) are released now
+		Set<String> usedEntries = new HashSet<String>();
+		if (textBody!=null) {
+			usedEntries.add(CONTENTXML);
+		}
+		for (EmbeddedObject object : embeddedObjects.values()) {
+			if (object instanceof EmbeddedXMLObject) {
+				usedEntries.add(object.getName()+"/"+CONTENTXML);
+				usedEntries.add(object.getName()+"/"+STYLESXML);
+			}
+			else {
+				usedEntries.add(object.getName());
+			}
+		}
+		zip.retainEntries(usedEntries);
 	}
 
 
+	// Parse an optional XML stream of the package
+	private Document parsePart(byte[] bytes) throws IOException {
+		if (bytes==null) {
+			return null;
+		}
+		try {
+			return parse(bytes,bCompactDOM);
+		} catch (SAXException ex) {
+			throw new IOException(ex);
+		}
+	}
+
 	private void readFlat(InputStream is) throws IOException {
+		// Images are decoded while parsing and added as embedded objects
+		FlatXMLParser parser = new FlatXMLParser(bCompactDOM);
 		try {
-			contentDoc = SimpleXMLParser.parse(is);
+			parser.read(is);
 		} catch (SAXException e) {
 			throw new IOException(e);
 		}
+		contentDoc = parser.getDOM();
 		styleDoc = null;
 		metaDoc = null;
 		manifestDoc = null;
 		bIsPackageFormat = false;
-		embeddedObjects = null;
+		embeddedObjects = new HashMap<String, EmbeddedObject>();
+		for (Map.Entry<String,byte[]> entry : parser.getBinaryData().entrySet()) {
+			embeddedObjects.put(entry.getKey(), new EmbeddedBinaryObject(entry.getKey(), "", this, entry.getValue()));
+		}
+		zip = null;
+		textBody = null;
 	}
 
 	/**
 	 *  Parse given <code>byte</code> array into a DOM
-	 *  <code>Document</code> object using the
-	 *  <code>DocumentBuilder</code> object.
+	 *  <code>Document</code> object.
 	 *
-	 *  @param  builder  <code>DocumentBuilder</code> object for parsing.
 	 *  @param  bytes    <code>byte</code> array for parsing.
 	 *
 	 *  @return  Resulting DOM <code>Document</code> object.
@@ -293,18 +694,11 @@ public class OfficeDocument {
 	 *  @throws  SAXException  If any parsing error occurs.
 	 */
 	static Document parse(byte bytes[]) throws SAXException, IOException {
-		SAXParserFactory factory=SAXParserFactory.newInstance();
-		SimpleXMLParser handler = new SimpleXMLParser();
-		try {
-			SAXParser saxParser = factory.newSAXParser();
-			saxParser.parse(new ByteArrayInputStream(bytes),handler);
-			return handler.getDOM();
-		}
-		catch (ParserConfigurationException e) {
-			System.err.println("Oops - failed to get XML parser!?");
-			e.printStackTrace();
-		}
-		return null;
+		return parse(bytes,false);
+	}
+	
+	private static Document parse(byte bytes[], boolean bCompact) throws SAXException, IOException {
+		return SimpleXMLParser.parse(new ByteArrayInputStream(bytes),bCompact);
 	}
 
 }
@@ -26,11 +26,13 @@
 
 package writer2latex.office;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -41,6 +43,7 @@ import org.w3c.dom.NodeList;
 import org.w3c.dom.Document;
 import org.w3c.dom.Text;
 
+import writer2latex.util.ElementHandler;
 import writer2latex.util.Misc;
 
 /** <p> This class reads and collects global information about an OOo document.
@@ -360,6 +363,11 @@ public class OfficeReader {
     
     // The first image in the document
     private Element firstImage = null;
+    
+    // Is the text body read on demand, and has it been indexed (the first pass)?
+    private boolean bStreamedContent = false;
+    private boolean bContentIndexed = false;
+    private boolean bDestructive = false;
 	
     // Identify OASIS OpenDocument format
     private boolean bOpenDocument = false;
@@ -810,6 +818,33 @@ public class OfficeReader {
     public Element getContent() {
         return content;
     }
+    
+    /** <p>Is the text body of this document read on demand?</p>
+     *  <p>In this case the content element is empty, and the text body must be read using
+     *  {@link #streamContent(ElementHandler)}</p>
+     *  @return true if the text body is read on demand
+     */
+    public boolean isContentStreamed() {
+        return bStreamedContent;
+    }
+    
+    /** <p>Read the text body of this document one element at a time.</p>
+     *  <p>Each top level element of the text body is appended to the content element and passed to the handler.
+     *  The handler should remove the element from the content element when it is no longer needed.
+     *  Information which is collected by this <code>OfficeReader</code> for individual elements (such as the
+     *  sequence names of captions) is available while the element is part of the content element.</p>
+     *  @param handler the handler to receive the elements
+     *  @throws IOException if an error occurs reading the document, or if the handler fails
+     */
+    public void streamContent(final ElementHandler handler) throws IOException {
+        oooDoc.streamContent(new ElementHandler() {
+            public void handleElement(Element element) throws IOException {
+                traverseContent(element,null,0,-1,bDestructive);
+                handler.handleElement(element);
+                releaseContent();
+            }
+        });
+    }
 	
     /** <p>Get the forms belonging to this document.</p>
      *  @return a <code>FormsReader</code> representing the forms
@@ -832,9 +867,14 @@ public class OfficeReader {
     	return firstImage;
     }
 
-    /** Constructor; read a document */
-    public OfficeReader(OfficeDocument oooDoc, boolean bAllParagraphsAreSoft, boolean bDestructive) {
+    /** Constructor; read a document. If the text body of the document is read on demand, the text body is
+     *  read once to collect information about indexes, references etc.
+     *  
+     *  @throws IOException if an error occurs reading the text body
+     */
+    public OfficeReader(OfficeDocument oooDoc, boolean bAllParagraphsAreSoft, boolean bDestructive) throws IOException {
         this.oooDoc = oooDoc;
+        this.bDestructive = bDestructive;
         loadStylesFromDOM(oooDoc.getStyleDOM(),oooDoc.getContentDOM(),bAllParagraphsAreSoft);
         loadContentFromDOM(oooDoc.getContentDOM(),bDestructive);
     }
@@ -1076,7 +1116,7 @@ public class OfficeReader {
 
     }
 	
-    private void loadContentFromDOM(Document contentDOM, boolean bDestructive) {
+    private void loadContentFromDOM(Document contentDOM, boolean bDestructive) throws IOException {
      // Get the office:body element
         NodeList list = contentDOM.getElementsByTagName(XMLString.OFFICE_BODY);
         if (list.getLength()>0) {
@@ -1137,6 +1177,19 @@ public class OfficeReader {
             }                
 
             traverseContent(body,null,0,-1,bDestructive);
+            
+            if (oooDoc.isContentStreamed()) {
+                // Collect information from the text body, which is discarded after reading
+                bStreamedContent = true;
+                oooDoc.streamContent(new ElementHandler() {
+                    public void handleElement(Element element) {
+                        traverseContent(element,null,0,-1,false);
+                        content.removeChild(element);
+                        releaseContent();
+                    }
+                });
+                bContentIndexed = true;
+            }
 
             if (sAutoFigureSequenceName!=null) {
                 addFigureSequenceName(sAutoFigureSequenceName);
@@ -1238,7 +1291,10 @@ public class OfficeReader {
             collectRefName(bookmarkRef,node);
         }
         else if (sName.equals(XMLString.TEXT_BIBLIOGRAPHY_MARK)) {
-        	bibliographyMarks.add(node);
+        	if (!bContentIndexed) {
+        		// A streamed text body is discarded after reading, hence we need a copy of the mark
+        		bibliographyMarks.add(bStreamedContent ? (Element) node.cloneNode(true) : node);
+        	}
         }
         else if (sName.equals(XMLString.TEXT_SEQUENCE_REF)) {
             collectRefName(sequenceRef,node);
@@ -1304,6 +1360,25 @@ public class OfficeReader {
        
     }
 	
+    // Forget information about elements, which are no longer part of a streamed text body
+    private void releaseContent() {
+        Iterator<Element> elements = sequenceNames.keySet().iterator();
+        while (elements.hasNext()) {
+            if (!isInContent(elements.next())) { elements.remove(); }
+        }
+        elements = indexes.keySet().iterator();
+        while (elements.hasNext()) {
+            if (!isInContent(elements.next())) { elements.remove(); }
+        }
+    }
+    
+    private boolean isInContent(Node node) {
+        while (node!=null && node!=content) {
+            node = node.getParentNode();
+        }
+        return node!=null;
+    }
+	
     private void collectRefName(Set<String> ref, Element node) {
         String sRefName = node.getAttribute(XMLString.TEXT_REF_NAME);
         if (sRefName!=null && sRefName.length()>0) {
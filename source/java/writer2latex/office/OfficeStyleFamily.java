@@ -39,6 +39,9 @@ public class OfficeStyleFamily {
     private Hashtable<String, String> displayNames = new Hashtable<String, String>();
 	
     private OfficeStyle defaultStyle = null;
+    
+    // Incremented whenever the family is changed, to invalidate cached property values
+    private int nVersion = 0;
 
     /** Create a new OfficeStyleFamily based on a class
      *  @param styleClass the subclass of OfficeStyle used to represent styles
@@ -55,6 +58,7 @@ public class OfficeStyleFamily {
      */
     public void setDefaultStyle(OfficeStyle style) {
         defaultStyle = style;
+        nVersion++;
     }
 	
     /** Get the default style for this family
@@ -64,6 +68,14 @@ public class OfficeStyleFamily {
         return defaultStyle;
     }
 	
+    /** Get the version of this family. The version changes whenever a style is added to the family or the
+     *  default style is changed, which may change the inherited properties of the styles in the family.
+     *  @return the version number
+     */
+    int getVersion() {
+        return nVersion;
+    }
+	
     /** Get a style by name
      *  @param sName the name of the style
      *  @return the style, or null if such a style does not exist
@@ -119,6 +131,7 @@ public class OfficeStyleFamily {
                 style.bAutomatic=bAutomatic;
                 style.loadStyleFromDOM(node);
                 styles.put(sName,style);
+                nVersion++;
                 if (!bAutomatic) {
                     // Create backlink from display name to name
                     displayNames.put(style.getDisplayName(),sName);
@@ -28,28 +28,34 @@ package writer2latex.office;
 
 import org.w3c.dom.Node;
 import org.w3c.dom.NamedNodeMap;
-import java.util.Enumeration;
-import java.util.Hashtable;
 
 /** <p> Class representing a set of style properties in OOo (actually this
-    is simply the set of attributes of an element). </p> 
+    is simply the set of attributes of an element). </p>
+    <p> The properties are stored in an open addressed hash table, which is allocated when the first
+    property is added. Hence an empty property set costs only a single object. </p>
   */
 public class PropertySet {
-    private Hashtable<String, String> properties = new Hashtable<String, String>();
+    // Shared storage for empty property sets
+    private static final String[] EMPTY = new String[0];
+
+    // Property names and values, the capacity is always a power of two
+    private String[] names = EMPTY;
+    private String[] values = EMPTY;
+    private int nSize = 0;
     private String sName;
 
     public PropertySet() {
-        properties = new Hashtable<String, String>();
         sName="";
     }
     
     public int getSize() {
-    	return properties.size();
+    	return nSize;
     }
 	
     public String getProperty(String sPropName) {
         if (sPropName!=null) {
-            String sValue = properties.get(sPropName);
+            int nIndex = indexOf(sPropName);
+            String sValue = nIndex>=0 ? values[nIndex] : null;
             if (sValue!=null && sValue.endsWith("inch")) {
                 // Cut of inch to in
                 return sValue.substring(0,sValue.length()-2);
@@ -72,31 +78,93 @@ public class PropertySet {
             NamedNodeMap attrNodes = node.getAttributes();
             if (attrNodes!=null) {    
                 int nLen = attrNodes.getLength();
+                ensureCapacity(nSize+nLen);
                 for (int i=0; i<nLen; i++){
                     Node attr = attrNodes.item(i);
-                    properties.put(attr.getNodeName(),attr.getNodeValue());
+                    setProperty(attr.getNodeName(),attr.getNodeValue());
                 }
             }
         }
     }
 	
     public boolean containsProperty(String sProperty) {
-        return sProperty!=null && properties.containsKey(sProperty);
+        return sProperty!=null && indexOf(sProperty)>=0;
     }
 	
     public void setProperty(String sProperty, String sValue){
-        properties.put(sProperty,sValue);
+        if (sProperty==null || sValue==null) {
+            throw new NullPointerException();
+        }
+        int nIndex = indexOf(sProperty);
+        if (nIndex>=0) {
+            values[nIndex] = sValue;
+        }
+        else {
+            ensureCapacity(nSize+1);
+            nIndex = slot(sProperty, names.length);
+            while (names[nIndex]!=null) {
+                nIndex = (nIndex+1) & (names.length-1);
+            }
+            names[nIndex] = sProperty;
+            values[nIndex] = sValue;
+            nSize++;
+        }
     }
 	
     public String toString() {
         String s="";
-        Enumeration<String> keys = properties.keys();
-        while (keys.hasMoreElements()) {
-            String sKey = keys.nextElement();
-            String sValue = properties.get(sKey);
-            s += sKey+"="+sValue+" ";
+        for (int i=0; i<names.length; i++) {
+            if (names[i]!=null) {
+                s += names[i]+"="+values[i]+" ";
+            }
         }
         return s;
     }
+    
+    // Get the position of a property in the table, or -1 if the property is not present
+    private int indexOf(String sProperty) {
+        if (nSize>0) {
+            int nMask = names.length-1;
+            int nIndex = slot(sProperty, names.length);
+            String sKey;
+            while ((sKey = names[nIndex])!=null) {
+                if (sKey.equals(sProperty)) {
+                    return nIndex;
+                }
+                nIndex = (nIndex+1) & nMask;
+            }
+        }
+        return -1;
+    }
+    
+    // Get the home position of a property in a table with the given capacity
+    private static int slot(String sProperty, int nCapacity) {
+        int h = sProperty.hashCode();
+        return (h ^ (h>>>16)) & (nCapacity-1);
+    }
+    
+    // Make sure that the table can hold the given number of properties (with a load factor of at most 1/2)
+    private void ensureCapacity(int nCount) {
+        if (2*nCount>names.length) {
+            int nCapacity = 4;
+            while (2*nCount>nCapacity) {
+                nCapacity<<=1;
+            }
+            String[] oldNames = names;
+            String[] oldValues = values;
+            names = new String[nCapacity];
+            values = new String[nCapacity];
+            for (int i=0; i<oldNames.length; i++) {
+                if (oldNames[i]!=null) {
+                    int nIndex = slot(oldNames[i], nCapacity);
+                    while (names[nIndex]!=null) {
+                        nIndex = (nIndex+1) & (nCapacity-1);
+                    }
+                    names[nIndex] = oldNames[i];
+                    values[nIndex] = oldValues[i];
+                }
+            }
+        }
+    }
 
 }
\ No newline at end of file
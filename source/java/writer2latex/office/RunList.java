@@ -0,0 +1,157 @@
+/************************************************************************
+ *
+ *  RunList.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+
+package writer2latex.office;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/** This class represents a list in which an element may be repeated, such as the rows of a table with
+ *  <code>table:number-rows-repeated</code>. Each run of a repeated element is stored only once, and an
+ *  element is found by a binary search on the runs. Hence the memory used depends on the number of runs
+ *  rather than the size of the list.
+ *
+ * @param <T> the type of the elements
+ */
+class RunList<T> {
+	private ArrayList<T> values = new ArrayList<T>();
+	// The index of the first element in each run
+	private int[] nStarts = new int[8];
+	private int nSize = 0;
+
+	/** Add a run to the end of the list
+	 * 
+	 * @param value the element
+	 * @param nCount the number of times to repeat the element (if this is not positive, nothing is added)
+	 */
+	void add(T value, int nCount) {
+		if (nCount>0) {
+			int nRuns = values.size();
+			if (nRuns==nStarts.length) {
+				nStarts = Arrays.copyOf(nStarts, Math.max(8, 2*nRuns));
+			}
+			nStarts[nRuns] = nSize;
+			values.add(value);
+			nSize += nCount;
+		}
+	}
+	
+	/** Get the size of the list
+	 * 
+	 * @return the number of elements, counting each repetition
+	 */
+	int size() {
+		return nSize;
+	}
+	
+	/** Get an element of the list
+	 * 
+	 * @param nIndex the index of the element, which must be in the range 0..size()-1
+	 * @return the element
+	 */
+	T get(int nIndex) {
+		return values.get(getRunIndex(nIndex));
+	}
+	
+	/** Get the number of runs in the list
+	 * 
+	 * @return the number of runs
+	 */
+	int getRunCount() {
+		return values.size();
+	}
+
+	/** Get the index of the run containing a given element
+	 * 
+	 * @param nIndex the index of the element, which must be in the range 0..size()-1
+	 * @return the index of the run
+	 */
+	int getRunIndex(int nIndex) {
+		int nRuns = values.size();
+		if (nRuns==nSize) {
+			// No repetitions
+			return nIndex;
+		}
+		int nLow = 0;
+		int nHigh = nRuns-1;
+		while (nLow<nHigh) {
+			int nMid = (nLow+nHigh+1)>>>1;
+			if (nStarts[nMid]<=nIndex) {
+				nLow = nMid;
+			}
+			else {
+				nHigh = nMid-1;
+			}
+		}
+		return nLow;
+	}
+	
+	/** Get the index of the first element of a run
+	 * 
+	 * @param nRun the index of the run
+	 * @return the index of the first element
+	 */
+	int getRunStart(int nRun) {
+		return nStarts[nRun];
+	}
+	
+	/** Get the length of a run
+	 * 
+	 * @param nRun the index of the run
+	 * @return the number of repetitions of the element
+	 */
+	int getRunLength(int nRun) {
+		return (nRun+1<values.size() ? nStarts[nRun+1] : nSize)-nStarts[nRun];
+	}
+	
+	/** Get the element of a run
+	 * 
+	 * @param nRun the index of the run
+	 * @return the element
+	 */
+	T getRunValue(int nRun) {
+		return values.get(nRun);
+	}
+	
+	/** Get the number of elements from a given element to the end of its run
+	 * 
+	 * @param nIndex the index of the element, which must be in the range 0..size()-1
+	 * @return the number of elements, including the given element
+	 */
+	int getRemainingLength(int nIndex) {
+		int nRun = getRunIndex(nIndex);
+		return nStarts[nRun]+getRunLength(nRun)-nIndex;
+	}
+	
+	/** Minimize the memory used by the list
+	 */
+	void trimToSize() {
+		values.trimToSize();
+		nStarts = Arrays.copyOf(nStarts, values.size());
+	}
+
+}
@@ -51,20 +51,35 @@ public class StyleWithProperties extends OfficeStyle {
 	
     private boolean bEmpty; // Flag to indicate that this style does not contain any properties except rsid
 	
+    // Property sets which are not present in the style share a single empty instance
+    private final static PropertySet EMPTY = new PropertySet();
+	
     private PropertySet[] properties = new PropertySet[COUNT];
     private boolean bIsOldProps = false;
 
-    private PropertySet backgroundImageProperties = new PropertySet();
+    private PropertySet backgroundImageProperties = EMPTY;
 
     private int nColCount = 0;
 
     private boolean bHasFootnoteSep = false;
-    private PropertySet footnoteSep = new PropertySet();
+    private PropertySet footnoteSep = EMPTY;
+    
+    // Cache of resolved inherited properties (one slot for each property set, and one for the property
+    // in any set), and similarly for absolute properties. The cache is a single open addressed table keyed
+    // by slot and property name (null values are cached as well).
+    // The cache is created on demand and is discarded if the style family has changed.
+    private final static int INHERITED = 0;
+    private final static int ABSOLUTE = COUNT+1;
+    private int[] cacheSlots = null;
+    private String[] cacheNames = null;
+    private String[] cacheValues = null;
+    private int nCacheSize = 0;
+    private int nCacheVersion;
 
 
     public StyleWithProperties() {
         for (int i=0; i<COUNT; i++) {
-            properties[i] = new PropertySet();
+            properties[i] = EMPTY;
         }
     }
 
@@ -121,6 +136,9 @@ public class StyleWithProperties extends OfficeStyle {
     }
 	
     private void loadPropertiesFromDOM(int nIndex,Node node) {
+        if (properties[nIndex]==EMPTY) {
+            properties[nIndex] = new PropertySet();
+        }
         properties[nIndex].loadFromDOM(node);
         // Several property sets may contain these complex properties, but only one per style:
         Node child = node.getFirstChild();
@@ -128,6 +146,9 @@ public class StyleWithProperties extends OfficeStyle {
             if (child.getNodeType()==Node.ELEMENT_NODE) {        
                 String sName = child.getNodeName();
                 if (XMLString.STYLE_BACKGROUND_IMAGE.equals(sName)) {    
+                    if (backgroundImageProperties==EMPTY) {
+                        backgroundImageProperties = new PropertySet();
+                    }
                     backgroundImageProperties.loadFromDOM(child);
                 }
                 else if (XMLString.STYLE_COLUMNS.equals(sName)) {    
@@ -137,6 +158,9 @@ public class StyleWithProperties extends OfficeStyle {
                 }
                 else if (XMLString.STYLE_FOOTNOTE_SEP.equals(sName)) {
                     bHasFootnoteSep = true; 
+                    if (footnoteSep==EMPTY) {
+                        footnoteSep = new PropertySet();
+                    }
                     footnoteSep.loadFromDOM(child);
                 }
             }
@@ -148,10 +172,84 @@ public class StyleWithProperties extends OfficeStyle {
     	return bEmpty;
     }
 	
+    // Get a resolved property from the cache, resolving it if it is not cached yet
+    private String getCachedProperty(int nSlot, String sName) {
+        int nVersion = family!=null ? family.getVersion() : 0;
+        if (cacheNames==null || nCacheVersion!=nVersion) {
+            // Create or renew the cache
+            cacheSlots = new int[8];
+            cacheNames = new String[8];
+            cacheValues = new String[8];
+            nCacheSize = 0;
+            nCacheVersion = nVersion;
+        }
+        int nIndex = cacheIndex(nSlot, sName, cacheNames.length);
+        String sKey;
+        while ((sKey = cacheNames[nIndex])!=null) {
+            if (cacheSlots[nIndex]==nSlot && sKey.equals(sName)) {
+                return cacheValues[nIndex];
+            }
+            nIndex = (nIndex+1) & (cacheNames.length-1);
+        }
+        String sValue;
+        if (nSlot<INHERITED+COUNT) { sValue = resolveProperty(nSlot-INHERITED,sName,true); }
+        else if (nSlot==INHERITED+COUNT) { sValue = resolveProperty(sName,true); }
+        else if (nSlot<ABSOLUTE+COUNT) { sValue = resolveAbsoluteProperty(nSlot-ABSOLUTE,sName); }
+        else { sValue = resolveAbsoluteProperty(sName); }
+        if (cacheNames[nIndex]!=null || nCacheVersion!=nVersion) {
+            // Resolving may have added entries to the cache (absolute properties are resolved using inherited
+            // properties), so the position may be taken or the table may be replaced. Simply start over.
+            return getCachedProperty(nSlot, sName);
+        }
+        cacheSlots[nIndex] = nSlot;
+        cacheNames[nIndex] = sName;
+        cacheValues[nIndex] = sValue;
+        if (2*(++nCacheSize)>cacheNames.length) {
+            growCache();
+        }
+        return sValue;
+    }
+    
+    // Get the home position of a cache entry in a table with the given capacity
+    private static int cacheIndex(int nSlot, String sName, int nCapacity) {
+        int h = sName.hashCode()*31+nSlot;
+        return (h ^ (h>>>16)) & (nCapacity-1);
+    }
+    
+    // Double the capacity of the cache (keeping a load factor of at most 1/2)
+    private void growCache() {
+        int[] oldSlots = cacheSlots;
+        String[] oldNames = cacheNames;
+        String[] oldValues = cacheValues;
+        int nCapacity = 2*oldNames.length;
+        cacheSlots = new int[nCapacity];
+        cacheNames = new String[nCapacity];
+        cacheValues = new String[nCapacity];
+        for (int i=0; i<oldNames.length; i++) {
+            if (oldNames[i]!=null) {
+                int nIndex = cacheIndex(oldSlots[i], oldNames[i], nCapacity);
+                while (cacheNames[nIndex]!=null) {
+                    nIndex = (nIndex+1) & (nCapacity-1);
+                }
+                cacheSlots[nIndex] = oldSlots[i];
+                cacheNames[nIndex] = oldNames[i];
+                cacheValues[nIndex] = oldValues[i];
+            }
+        }
+    }
+	
     protected String getProperty(int nIndex, String sName, boolean bInherit) {
+        if (bInherit && sName!=null) {
+            // Inherited properties are resolved once and then taken from the cache
+            return getCachedProperty(INHERITED+nIndex,sName);
+        }
+        return resolveProperty(nIndex,sName,bInherit);
+    }
+	
+    private String resolveProperty(int nIndex, String sName, boolean bInherit) {
         int nRealIndex = bIsOldProps ? OLDPROPS : nIndex;
-        if (properties[nRealIndex].containsProperty(sName)) {
-            String sValue = properties[nRealIndex].getProperty(sName);
+        String sValue = properties[nRealIndex].getProperty(sName);
+        if (sValue!=null) {
             return Calc.truncateLength(sValue);
         }
         else if (bInherit && getParentName()!=null) {
@@ -197,6 +295,13 @@ public class StyleWithProperties extends OfficeStyle {
 
     // TODO: Remove this method
     public String getProperty(String sProperty, boolean bInherit){
+        if (bInherit && sProperty!=null) {
+            return getCachedProperty(INHERITED+COUNT,sProperty);
+        }
+        return resolveProperty(sProperty,bInherit);
+    }
+    
+    private String resolveProperty(String sProperty, boolean bInherit){
         String sValue;
         for (int i=0; i<COUNT; i++) {
             sValue = getProperty(i,sProperty,bInherit);
@@ -211,6 +316,14 @@ public class StyleWithProperties extends OfficeStyle {
     }
 	
     protected String getAbsoluteProperty(int nIndex, String sProperty){
+        if (sProperty!=null) {
+            // Absolute properties are resolved once and then taken from the cache
+            return getCachedProperty(ABSOLUTE+nIndex,sProperty);
+        }
+        return resolveAbsoluteProperty(nIndex,sProperty);
+    }
+	
+    private String resolveAbsoluteProperty(int nIndex, String sProperty){
         int nRealIndex = bIsOldProps ? OLDPROPS : nIndex;
         if (properties[nRealIndex].containsProperty(sProperty)){
             String sValue=(String) properties[nRealIndex].getProperty(sProperty);
@@ -281,6 +394,13 @@ public class StyleWithProperties extends OfficeStyle {
 
     // TODO: Remove this method
     public String getAbsoluteProperty(String sProperty){
+        if (sProperty!=null) {
+            return getCachedProperty(ABSOLUTE+COUNT,sProperty);
+        }
+        return resolveAbsoluteProperty(sProperty);
+    }
+    
+    private String resolveAbsoluteProperty(String sProperty){
         String sValue;
         for (int i=0; i<COUNT; i++) {
             sValue = getAbsoluteProperty(i,sProperty);
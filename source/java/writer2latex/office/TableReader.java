@@ -25,7 +25,6 @@
  
 package writer2latex.office;
 
-import java.util.LinkedList;
 import java.util.Vector;
 
 import org.w3c.dom.Element;
@@ -33,6 +32,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import writer2latex.util.Calc;
+import writer2latex.util.Length;
 import writer2latex.util.Misc;
 
 /**
@@ -43,12 +43,17 @@ import writer2latex.util.Misc;
 public class TableReader {
     //private OfficeReader ofr;
     private Element tableNode;
-    private LinkedList<TableLine> cols = new LinkedList<TableLine>();
-    private LinkedList<TableLine> rows = new LinkedList<TableLine>();
-    private LinkedList<LinkedList<Element>> cells = new LinkedList<LinkedList<Element>>();
+    // Repeated rows, columns and cells are stored as runs (repeated rows share the cells)
+    private RunList<TableLine> cols = new RunList<TableLine>();
+    private RunList<TableLine> rows = new RunList<TableLine>();
+    private RunList<RunList<Element>> cells = new RunList<RunList<Element>>();
     private int nMaxCols = 1; // real number of columns (count to last non-empty)
     private int nMaxRows = 1; // real number of rows (count to last non-empty)
+    private int nMaxRowSpan = 1; // the largest row span of any cell
+    private int nMaxColSpan = 1; // the largest column span of any cell
+    // Column widths are stored for each run of columns
     private String[] sColWidth;
+    private Length[] colWidth; // parsed column widths for calculation of cell widths
     private String[] sRelColWidth;
     private String sTableWidth;
     private String sRelTableWidth;
@@ -112,14 +117,17 @@ public class TableReader {
         }
 		
         // Determine column widths
+        cols.trimToSize();
         int nCols = cols.size();
-        sColWidth = new String[nCols];
-        sRelColWidth = new String[nCols];
-        int[] nRelColWidth = new int[nCols];
+        int nColRuns = cols.getRunCount();
+        sColWidth = new String[nColRuns];
+        colWidth = new Length[nColRuns];
+        sRelColWidth = new String[nColRuns];
+        int[] nRelColWidth = new int[nColRuns];
         boolean bHasRelWidth=true; // set to false if some columns does not have a relative width set
         int nColSum = 0;
-        for (int nCol=0; nCol<nCols; nCol++) {
-            StyleWithProperties style = ofr.getColumnStyle(cols.get(nCol).getStyleName());
+        for (int nCol=0; nCol<nColRuns; nCol++) {
+            StyleWithProperties style = ofr.getColumnStyle(cols.getRunValue(nCol).getStyleName());
             if (style!=null) {
                 sColWidth[nCol] = style.getProperty(XMLString.STYLE_COLUMN_WIDTH);
                 String s = style.getProperty(XMLString.STYLE_REL_COLUMN_WIDTH);
@@ -128,10 +136,11 @@ public class TableReader {
                 }
             }
             if (sColWidth[nCol]==null) { sColWidth[nCol] = "2cm"; } // emergency, should not happen
+            colWidth[nCol] = Length.valueOf(sColWidth[nCol]);
             if (nRelColWidth[nCol]==0) { bHasRelWidth = false; }
-            nColSum += nRelColWidth[nCol];
+            nColSum += nRelColWidth[nCol]*cols.getRunLength(nCol);
         }
-        for (int nCol=0; nCol<nCols; nCol++) {
+        for (int nCol=0; nCol<nColRuns; nCol++) {
             if (bHasRelWidth) {
                 sRelColWidth[nCol] = (100.0F*nRelColWidth[nCol]/nColSum)+"%";
             }
@@ -148,15 +157,19 @@ public class TableReader {
 
         // Now determine the actual number of rows and columns
         // (Calc exports a lot of empty rows at columns bottom/right)
-        int nRows = cells.size();
-        for (int nRow=0; nRow<nRows; nRow++) {
-        	LinkedList<Element> row = cells.get(nRow);
-            nCols = row.size();
+        // For a run of repeated cells, only the last repetition needs to be considered
+        cells.trimToSize();
+        int nRowRuns = cells.getRunCount();
+        for (int nRowRun=0; nRowRun<nRowRuns; nRowRun++) {
+        	RunList<Element> row = cells.getRunValue(nRowRun);
+        	int nRow = cells.getRunStart(nRowRun)+cells.getRunLength(nRowRun)-1;
+            int nCellRuns = row.getRunCount();
             int nMaxCol = 0;
             int nMaxRow = 0;
-            for (int nCol=0; nCol<nCols; nCol++) {
-                Element cell = (Element) row.get(nCol);
+            for (int nCellRun=0; nCellRun<nCellRuns; nCellRun++) {
+                Element cell = row.getRunValue(nCellRun);
                 if (cell.hasChildNodes()) {
+                	int nCol = row.getRunStart(nCellRun)+row.getRunLength(nCellRun)-1;
                     nMaxRow = nRow + Misc.getPosInteger(cell.getAttribute(
                             XMLString.TABLE_NUMBER_ROWS_SPANNED),1);
                     if (nMaxRow>nMaxRows) { nMaxRows = nMaxRow; }
@@ -186,9 +199,7 @@ public class TableReader {
     private void readTableColumn(Node node, boolean bHeader, boolean bDisplay) {
         int nRepeat = Misc.getPosInteger(Misc.getAttribute(node,
                                          XMLString.TABLE_NUMBER_COLUMNS_REPEATED),1);
-        while (nRepeat-->0) {
-            cols.add(new TableLine(node,bHeader,bDisplay));
-        }
+        cols.add(new TableLine(node,bHeader,bDisplay),nRepeat);
     }
 
     private void readTableColumns(Node node, boolean bHeader, boolean bDisplay) {
@@ -238,11 +249,12 @@ public class TableReader {
     private void readTableRow(Node node, boolean bHeader, boolean bDisplay) {
         int nRepeat = Misc.getPosInteger(Misc.getAttribute(node,
                                          XMLString.TABLE_NUMBER_ROWS_REPEATED),1);
-        while (nRepeat-->0  && rows.size()<nRowCount) {
-            rows.add(new TableLine(node,bHeader,bDisplay));
+        nRepeat = Math.min(nRepeat, nRowCount-rows.size());
+        if (nRepeat>0) {
+            rows.add(new TableLine(node,bHeader,bDisplay),nRepeat);
 
             // Read the cells in the row
-            LinkedList<Element> row = new LinkedList<Element>();
+            RunList<Element> row = new RunList<Element>();
             if (node.hasChildNodes()) {
                 NodeList nl = node.getChildNodes();
                 int nLen = nl.getLength();
@@ -254,17 +266,22 @@ public class TableReader {
                         if (sName.equals(XMLString.TABLE_TABLE_CELL)) {
                             int nColRepeat = Misc.getPosInteger(cell.getAttribute(
                                              XMLString.TABLE_NUMBER_COLUMNS_REPEATED),1);
-                            while (nColRepeat-->0) { row.add(cell); }
+                            row.add(cell,nColRepeat);
+                            nMaxRowSpan = Math.max(nMaxRowSpan, Misc.getPosInteger(cell.getAttribute(
+                                             XMLString.TABLE_NUMBER_ROWS_SPANNED),1));
+                            nMaxColSpan = Math.max(nMaxColSpan, Misc.getPosInteger(cell.getAttribute(
+                                             XMLString.TABLE_NUMBER_COLUMNS_SPANNED),1));
                         }
                         else if (sName.equals(XMLString.TABLE_COVERED_TABLE_CELL)) {
                             int nColRepeat = Misc.getPosInteger(cell.getAttribute(
                                              XMLString.TABLE_NUMBER_COLUMNS_REPEATED),1);
-                            while (nColRepeat-->0) { row.add(cell); }
+                            row.add(cell,nColRepeat);
                         }
                     }
                 }
             }
-            cells.add(row);
+            row.trimToSize();
+            cells.add(row,nRepeat);
         }
 
     }
@@ -441,18 +458,66 @@ public class TableReader {
     public int getMaxColCount() { return nMaxCols; }
 
     public String getColumnWidth(int nCol) {
-        return 0<=nCol && nCol<=cols.size() ? sColWidth[nCol] : null;
+        return 0<=nCol && nCol<cols.size() ? sColWidth[cols.getRunIndex(nCol)] : null;
     }
 	
     public String getRelColumnWidth(int nCol) {
-        return 0<=nCol && nCol<=cols.size() ? sRelColWidth[nCol] : null;
+        return 0<=nCol && nCol<cols.size() ? sRelColWidth[cols.getRunIndex(nCol)] : null;
     }
 	
     public Element getCell(int nRow, int nCol) {
         if (nRow<0 || nRow>=cells.size()) { return null; }
-        LinkedList<Element> row = cells.get(nRow);
+        RunList<Element> row = cells.get(nRow);
         if (nCol<0 || nCol>=row.size()) { return null; }
-        return (Element) row.get(nCol);
+        return row.get(nCol);
+    }
+    
+    /** Get the largest number of rows spanned by any cell in the table
+     * 
+     * @return the row span, which is at least 1
+     */
+    public int getMaxRowSpan() {
+        return nMaxRowSpan;
+    }
+	
+    /** Get the largest number of columns spanned by any cell in the table
+     * 
+     * @return the column span, which is at least 1
+     */
+    public int getMaxColSpan() {
+        return nMaxColSpan;
+    }
+	
+    /** Get the number of rows, starting with a given row, which are repetitions of the same row
+     * 
+     * @param nRow the index of the row
+     * @return the number of identical rows (at least 1), including the given row
+     */
+    public int getRowRepeat(int nRow) {
+        return 0<=nRow && nRow<rows.size() ? rows.getRemainingLength(nRow) : 1;
+    }
+	
+    /** Get the number of columns, starting with a given column, which are repetitions of the same column
+     * 
+     * @param nCol the index of the column
+     * @return the number of identical columns (at least 1), including the given column
+     */
+    public int getColRepeat(int nCol) {
+        return 0<=nCol && nCol<cols.size() ? cols.getRemainingLength(nCol) : 1;
+    }
+	
+    /** Get the number of cells, starting with a given cell, which are repetitions of the same cell
+     * 
+     * @param nRow the index of the row
+     * @param nCol the index of the column
+     * @return the number of identical cells (at least 1) in the row, including the given cell
+     */
+    public int getCellRepeat(int nRow, int nCol) {
+        if (nRow<0 || nRow>=cells.size() || nCol<0) { return 1; }
+        RunList<Element> row = cells.get(nRow);
+        if (nCol<row.size()) { return row.getRemainingLength(nCol); }
+        // Missing cells at the end of the row
+        return Math.max(1, cols.size()-nCol);
     }
 	
     public String getCellStyleName(int nRow, int nCol) {
@@ -470,11 +535,12 @@ public class TableReader {
         Element cell = (Element) getCell(nRow,nCol);
         if (cell==null) { return null; }
         int nCols = Misc.getPosInteger(cell.getAttribute(XMLString.TABLE_NUMBER_COLUMNS_SPANNED),1);
-        String sWidth = sColWidth[nCol];
+        if (nCols==1) { return getColumnWidth(nCol); }
+        Length width = colWidth[cols.getRunIndex(nCol)];
         for (int i=nCol+1; i<nCol+nCols; i++) {
-            sWidth = Calc.add(sWidth,sColWidth[i]);
+            width = width.add(colWidth[cols.getRunIndex(i)]);
         }
-        return sWidth;
+        return width.toString();
     }
 	
     public TableLine getRow(int nRow) {
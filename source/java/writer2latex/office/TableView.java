@@ -26,6 +26,8 @@
 
 package writer2latex.office;
 
+import java.util.Arrays;
+
 import org.w3c.dom.Element;
 
 import writer2latex.util.Misc;
@@ -33,9 +35,14 @@ import writer2latex.util.Misc;
 /**
  *  This class represents a view of a <code>TableRange</code>. A view provides
  *  read access to the range using a simple grid model.
+ *  Repeated rows, columns and cells are handled as runs, such that the memory and time used to create
+ *  the view depends on the number of distinct cells rather than the size of the range.
  */
 public class TableView {
 
+    // Shared cell view for positions without a cell view (must not be modified)
+    private static final CellView EMPTY_CELL = new CellView();
+
     private TableReader reader;
     private TableRange range;
 	
@@ -44,101 +51,142 @@ public class TableView {
     private int nColCount;
 
     // Map view row/col index to original index
-    private int[] nRowMap;
-    private int[] nColMap;
+    private LineMap rowMap = new LineMap();
+    private LineMap colMap = new LineMap();
 
-    // The cells in the view 
-    private CellView[][] cells;
+    // The cells in the view, stored as bands of identical rows (in ascending order)
+    private int[] nBandStarts = new int[8];
+    private RowBand[] bands = new RowBand[8];
+    private int nBandCount = 0;
 
     public TableView(TableReader reader, TableRange range) {
         this.reader = reader;
         this.range = range;
 		
-        // Count visible rows & cols in this range
-        nRowCount = 0;
-        for (int nRow=range.getFirstRow(); nRow<=range.getLastRow(); nRow++) {
-            if (isVisibleRow(nRow)) { nRowCount++; }
+        // Map the visible rows & cols in this range
+        // (repeated rows and columns share the visibility, so each repetition is handled as a whole)
+        for (int nRow=range.getFirstRow(); nRow<=range.getLastRow(); nRow+=getRowRepeat(nRow)) {
+            if (isVisibleRow(nRow)) { rowMap.add(nRow, getRowRepeat(nRow)); }
         }
-        nColCount = 0;
-        for (int nCol=range.getFirstCol(); nCol<=range.getLastCol(); nCol++) {
-            if (isVisibleCol(nCol)) { nColCount++; }
-        }
-		
-        // Fill the row & col maps
-        nRowMap = new int[nRowCount];
-        int nRealRow = range.getFirstRow();
-        for (int nRow=0; nRow<nRowCount; nRow++) {
-            // Skip invisible rows
-            while (!isVisibleRow(nRealRow)) { nRealRow++; }
-            nRowMap[nRow] = nRealRow++;
-        }
-        nColMap = new int[nColCount];
-        int nRealCol = range.getFirstCol();
-        for (int nCol=0; nCol<nColCount; nCol++) {
-            // Skip invisible cols
-            while (!isVisibleCol(nRealCol)) { nRealCol++; }
-            nColMap[nCol] = nRealCol++;
+        nRowCount = rowMap.getSize();
+        for (int nCol=range.getFirstCol(); nCol<=range.getLastCol(); nCol+=getColRepeat(nCol)) {
+            if (isVisibleCol(nCol)) { colMap.add(nCol, getColRepeat(nCol)); }
         }
+        nColCount = colMap.getSize();
+        if (nRowCount==0 || nColCount==0) { return; }
 		
-        // Initialize the cell views
-        cells = new CellView[nRowCount][nColCount];
-        for (int nRow=0; nRow<nRowCount; nRow++) {
-            for (int nCol=0; nCol<nColCount; nCol++) {
-                cells[nRow][nCol] = new CellView();
+        // Fill the cell views
+        // (must start early enough to include cells spanning into the range from above or from the left)
+        int nStartRow = Math.max(0, range.getFirstRow()-reader.getMaxRowSpan()+1);
+        int nRow = nStartRow;
+        while (nRow<=range.getLastRow()) {
+            // Get the run of identical rows with the same visibility
+            int nRepeat = getRowRepeat(nRow);
+            if (nRow<range.getFirstRow()) { nRepeat = Math.min(nRepeat, range.getFirstRow()-nRow); }
+            // All the rows belong to the first visible row at or after the run
+            int nViewRow = rowMap.getView(nRow);
+            if (nViewRow<nRowCount) {
+                if (rowMap.getSource(nViewRow)==nRow) {
+                    // Visible rows: The first row may also contain cells from the preceding rows,
+                    // the remaining rows are identical unless they contain cells spanning several rows
+                    boolean bRowSpan = fillRow(getBand(nViewRow), nRow, nViewRow);
+                    if (nRepeat>1) {
+                        if (bRowSpan) {
+                            for (int i=1; i<nRepeat; i++) {
+                                fillRow(getBand(nViewRow+i), nRow+i, nViewRow+i);
+                            }
+                        }
+                        else {
+                            fillRow(getBand(nViewRow+1), nRow+1, nViewRow+1);
+                        }
+                    }
+                }
+                else {
+                    // Invisible rows: Only the first row (for covered cells) and the rows close enough to
+                    // the next visible row to span into it can contribute to the view
+                    RowBand band = getBand(nViewRow);
+                    fillRow(band, nRow, nViewRow);
+                    for (int i=Math.max(1, nRepeat-reader.getMaxRowSpan()+1); i<nRepeat; i++) {
+                        fillRow(band, nRow+i, nViewRow);
+                    }
+                }
             }
+            nRow+=nRepeat;
         }
-		
-        // Fill the cell views
-        // (must start in the upper left corner of the original table)
-        int nViewRow = 0;
-        for (int nRow=0; nRow<=range.getLastRow(); nRow++) {
-            if (nViewRow<nRowCount && nRowMap[nViewRow]<nRow) { nViewRow++; }
-            int nViewCol = 0;
-            for (int nCol=0; nCol<=range.getLastCol(); nCol++) {
-                if (nViewCol<nColCount && nColMap[nViewCol]<nCol) { nViewCol++; }
-                Element cell = reader.getCell(nRow,nCol);
-                if (cell!=null) {
-                	if (Misc.isElement(cell,XMLString.TABLE_TABLE_CELL)) {
-                		int nRowSpan = Misc.getPosInteger(cell.getAttribute(XMLString.TABLE_NUMBER_ROWS_SPANNED),1);
-                		int nColSpan = Misc.getPosInteger(cell.getAttribute(XMLString.TABLE_NUMBER_COLUMNS_SPANNED),1);
-                		// Test if (parts of) the cell belongs the view
-                		if (nViewRow<nRowCount && nRowMap[nViewRow]<nRow+nRowSpan &&
-                				nViewCol<nColCount && nColMap[nViewCol]<nCol+nColSpan) {
-                			cells[nViewRow][nViewCol].cell=cell;
-                			cells[nViewRow][nViewCol].nOriginalRow=nRow;
-                			cells[nViewRow][nViewCol].nOriginalCol=nCol;
-                			// Calculate rowspan in view
-                			int i=nViewRow+1;
-                			while (i<nRowCount && nRowMap[i]<nRow+nRowSpan) { i++; }
-                			cells[nViewRow][nViewCol].nRowSpan = i-nViewRow;
-                			// Calculate colspan in view
-                			int j=nViewCol+1;
-                			while (j<nColCount && nColMap[j]<nCol+nColSpan) { j++; }
-                			cells[nViewRow][nViewCol].nColSpan = j-nViewCol;
-                		}
-                	}
-                	else if (Misc.isElement(cell,XMLString.TABLE_COVERED_TABLE_CELL)) {
-                		// Don't overwrite, the position may be occupied with a relocated cell
-                		if (cells[nViewRow][nViewCol].cell==null) {
-                			cells[nViewRow][nViewCol].cell=cell;
-                			cells[nViewRow][nViewCol].nOriginalRow=nRow;
-                			cells[nViewRow][nViewCol].nOriginalCol=nCol;
-                		}
-                	}
+    }
+    
+    // Fill the cell views for a row into a band, returning true if the row contains cells spanning several rows
+    private boolean fillRow(RowBand band, int nRow, int nViewRow) {
+        boolean bRowSpan = false;
+        int nStartCol = Math.max(0, range.getFirstCol()-reader.getMaxColSpan()+1);
+        int nCol = nStartCol;
+        while (nCol<=range.getLastCol()) {
+            // Get the run of identical cells with the same visibility
+            int nRepeat = Math.min(getColRepeat(nCol), reader.getCellRepeat(nRow,nCol));
+            if (nCol<range.getFirstCol()) { nRepeat = Math.min(nRepeat, range.getFirstCol()-nCol); }
+            Element cell = reader.getCell(nRow,nCol);
+            boolean bSpan = false;
+            if (cell!=null && Misc.isElement(cell,XMLString.TABLE_TABLE_CELL)) {
+                boolean bCellRowSpan = Misc.getPosInteger(cell.getAttribute(XMLString.TABLE_NUMBER_ROWS_SPANNED),1)>1;
+                bSpan = bCellRowSpan || Misc.getPosInteger(cell.getAttribute(XMLString.TABLE_NUMBER_COLUMNS_SPANNED),1)>1;
+                bRowSpan |= bCellRowSpan;
+            }
+            // All the cells belong to the first visible column at or after the run
+            int nViewCol = colMap.getView(nCol);
+            if (nViewCol<nColCount) {
+                if (colMap.getSource(nViewCol)==nCol) {
+                    // Visible cells: Handle the run as a whole unless the cells are spanning
+                    if (bSpan) {
+                        for (int i=0; i<nRepeat; i++) {
+                            fillCell(band, cell, nRow, nCol+i, nViewRow, nViewCol+i);
+                        }
+                    }
+                    else if (cell!=null && Misc.isElement(cell,XMLString.TABLE_COVERED_TABLE_CELL)) {
+                        // Don't overwrite, the positions may be occupied with relocated cells
+                        band.fillEmpty(nViewCol, nViewCol+nRepeat, createCellView(cell,nRow,nCol,1,1));
+                    }
+                    else if (rowMap.getSource(nViewRow)==nRow && (cell==null || Misc.isElement(cell,XMLString.TABLE_TABLE_CELL))) {
+                        // Cells (or non-existing cells, which are treated as empty) belong to the view in a visible row
+                        band.set(nViewCol, nViewCol+nRepeat, createCellView(cell,nRow,nCol,1,1));
+                    }
                 }
-                else { // Non-existing cell, treat as empty
-            		// Test if the cell belongs the view
-            		if (nViewRow<nRowCount && nRowMap[nViewRow]<nRow+1 &&
-            				nViewCol<nColCount && nColMap[nViewCol]<nCol+1) {
-            			cells[nViewRow][nViewCol].cell=null;
-            			cells[nViewRow][nViewCol].nOriginalRow=nRow;
-            			cells[nViewRow][nViewCol].nOriginalCol=nCol;
-            			cells[nViewRow][nViewCol].nRowSpan = 1;
-            			cells[nViewRow][nViewCol].nColSpan = 1;
-            		}
-                	
+                else {
+                    // Invisible cells: Only the first cell (for covered cells) and the cells close enough to
+                    // the next visible column to span into it can contribute to the view
+                    fillCell(band, cell, nRow, nCol, nViewRow, nViewCol);
+                    for (int i=Math.max(1, nRepeat-reader.getMaxColSpan()+1); i<nRepeat; i++) {
+                        fillCell(band, cell, nRow, nCol+i, nViewRow, nViewCol);
+                    }
                 }
             }
+            nCol+=nRepeat;
+        }
+        return bRowSpan;
+    }
+    
+    // Fill the cell view for a single cell, which belongs to the given position in the view
+    private void fillCell(RowBand band, Element cell, int nRow, int nCol, int nViewRow, int nViewCol) {
+        if (cell!=null) {
+        	if (Misc.isElement(cell,XMLString.TABLE_TABLE_CELL)) {
+        		int nRowSpan = Misc.getPosInteger(cell.getAttribute(XMLString.TABLE_NUMBER_ROWS_SPANNED),1);
+        		int nColSpan = Misc.getPosInteger(cell.getAttribute(XMLString.TABLE_NUMBER_COLUMNS_SPANNED),1);
+        		// Test if (parts of) the cell belongs the view
+        		if (rowMap.getSource(nViewRow)<nRow+nRowSpan && colMap.getSource(nViewCol)<nCol+nColSpan) {
+        			// The span in the view is the number of visible rows and columns covered by the cell
+        			band.set(nViewCol, nViewCol+1, createCellView(cell, nRow, nCol,
+        					rowMap.getView(nRow+nRowSpan)-nViewRow, colMap.getView(nCol+nColSpan)-nViewCol));
+        		}
+        	}
+        	else if (Misc.isElement(cell,XMLString.TABLE_COVERED_TABLE_CELL)) {
+        		// Don't overwrite, the position may be occupied with a relocated cell
+        		band.fillEmpty(nViewCol, nViewCol+1, createCellView(cell,nRow,nCol,1,1));
+        	}
+        }
+        else { // Non-existing cell, treat as empty
+        	// Test if the cell belongs the view
+        	if (rowMap.getSource(nViewRow)==nRow && colMap.getSource(nViewCol)==nCol) {
+        		band.set(nViewCol, nViewCol+1, createCellView(null,nRow,nCol,1,1));
+        	}
         }
     }
 	
@@ -149,46 +197,109 @@ public class TableView {
     public int getColCount() { return nColCount; }
 
     public String getColumnWidth(int nCol) {
-        return 0<=nCol && nCol<=nColCount ? reader.getColumnWidth(nColMap[nCol]) : null;
+        return 0<=nCol && nCol<=nColCount ? reader.getColumnWidth(colMap.getSource(nCol)) : null;
     }
 	
     // TODO: Recalculate - the sum should be 100% even in a view!!
     public String getRelColumnWidth(int nCol) {
-        return 0<=nCol && nCol<=nColCount ? reader.getRelColumnWidth(nColMap[nCol]) : null;
+        return 0<=nCol && nCol<=nColCount ? reader.getRelColumnWidth(colMap.getSource(nCol)) : null;
     }
 	
     public TableLine getRow(int nRow) {
-        return 0<=nRow && nRow<nRowCount ? reader.getRow(nRowMap[nRow]) : null;
+        return 0<=nRow && nRow<nRowCount ? reader.getRow(rowMap.getSource(nRow)) : null;
     }
 
     public TableLine getCol(int nCol) {
-        return 0<=nCol && nCol<nColCount ? reader.getCol(nColMap[nCol]) : null;
+        return 0<=nCol && nCol<nColCount ? reader.getCol(colMap.getSource(nCol)) : null;
     }
 	
     public Element getCell(int nRow, int nCol) {
         return 0<=nRow && nRow<nRowCount && 0<=nCol && nCol<nColCount ?
-            cells[nRow][nCol].cell : null;  
+            peekCellView(nRow,nCol).cell : null;  
     }
 	
     public int getRowSpan(int nRow, int nCol) {
         return 0<=nRow && nRow<nRowCount && 0<=nCol && nCol<nColCount ?
-            cells[nRow][nCol].nRowSpan : 1;  
+            peekCellView(nRow,nCol).nRowSpan : 1;  
     }
 	
     public int getColSpan(int nRow, int nCol) {
         return 0<=nRow && nRow<nRowCount && 0<=nCol && nCol<nColCount ?
-            cells[nRow][nCol].nColSpan : 1;  
+            peekCellView(nRow,nCol).nColSpan : 1;  
     }
 	
     public String getCellStyleName(int nRow, int nCol) {
-        return 0<=nRow && nRow<nRowCount && 0<=nCol && nCol<nColCount ?
-            reader.getCellStyleName(cells[nRow][nCol].nOriginalRow, cells[nRow][nCol].nOriginalCol) : null;  
+        if (0<=nRow && nRow<nRowCount && 0<=nCol && nCol<nColCount) {
+            CellView view = peekCellView(nRow,nCol);
+            return reader.getCellStyleName(view.nOriginalRow, view.nOriginalCol);
+        }
+        return null;
     }
 	
     // TODO: Not correct, see TableReader
     public String getCellWidth(int nRow, int nCol) {
-        return 0<=nRow && nRow<nRowCount && 0<=nCol && nCol<nColCount ?
-            reader.getCellWidth(cells[nRow][nCol].nOriginalRow, cells[nRow][nCol].nOriginalCol) : null;  
+        if (0<=nRow && nRow<nRowCount && 0<=nCol && nCol<nColCount) {
+            CellView view = peekCellView(nRow,nCol);
+            return reader.getCellWidth(view.nOriginalRow, view.nOriginalCol);
+        }
+        return null;
+    }
+	
+    // Helper method: Create a cell view
+    private static CellView createCellView(Element cell, int nRow, int nCol, int nRowSpan, int nColSpan) {
+        CellView view = new CellView();
+        view.cell = cell;
+        view.nOriginalRow = nRow;
+        view.nOriginalCol = nCol;
+        view.nRowSpan = nRowSpan;
+        view.nColSpan = nColSpan;
+        return view;
+    }
+	
+    // Helper method: Get the band starting with this row, creating it if it is not the last band
+    // (the rows are visited in ascending order, hence the bands are created in ascending order)
+    private RowBand getBand(int nRow) {
+        if (nBandCount==0 || nBandStarts[nBandCount-1]!=nRow) {
+            if (nBandCount==bands.length) {
+                nBandStarts = Arrays.copyOf(nBandStarts, 2*nBandCount);
+                bands = Arrays.copyOf(bands, 2*nBandCount);
+            }
+            nBandStarts[nBandCount] = nRow;
+            bands[nBandCount++] = new RowBand(nColCount);
+        }
+        return bands[nBandCount-1];
+    }
+	
+    // Helper method: Get the cell view at this position, or an empty cell view if it does not exist
+    // (the original position of the cell view is adjusted to the position within the band)
+    private CellView peekCellView(int nRow, int nCol) {
+        int nBand = Arrays.binarySearch(nBandStarts, 0, nBandCount, nRow);
+        if (nBand<0) { nBand = -nBand-2; }
+        if (nBand>=0) {
+            RowBand band = bands[nBand];
+            int nIndex = band.indexOf(nCol);
+            CellView view = band.views[nIndex];
+            if (view!=null) {
+                int nRowOffset = nRow-nBandStarts[nBand];
+                int nColOffset = nCol-band.nStarts[nIndex];
+                if (nRowOffset==0 && nColOffset==0) {
+                    return view;
+                }
+                return createCellView(view.cell, view.nOriginalRow+nRowOffset, view.nOriginalCol+nColOffset,
+                        view.nRowSpan, view.nColSpan);
+            }
+        }
+        return EMPTY_CELL;
+    }
+	
+    // Helper method: Get the number of repetitions of this row within the range
+    private int getRowRepeat(int nRow) {
+        return Math.min(reader.getRowRepeat(nRow), range.getLastRow()-nRow+1);
+    }
+	
+    // Helper method: Get the number of repetitions of this column within the range
+    private int getColRepeat(int nCol) {
+        return Math.min(reader.getColRepeat(nCol), range.getLastCol()-nCol+1);
     }
 	
     // Helper method: Is this row visible in this view?
@@ -205,6 +316,119 @@ public class TableView {
                (range.includeFiltered() || !reader.getCol(nCol).isFilter());
     }
 	
+    // Map from view index to original index of rows or columns, stored as runs of consecutive indices
+    private static final class LineMap {
+        // The first view index, the first original index and the length of each run
+        private int[] nViewStarts = new int[8];
+        private int[] nSourceStarts = new int[8];
+        private int nRuns = 0;
+        private int nSize = 0;
+        
+        // Add a run of consecutive original indices to the end of the map
+        void add(int nSource, int nCount) {
+            if (nRuns>0 && nSourceStarts[nRuns-1]+nSize-nViewStarts[nRuns-1]==nSource) {
+                // Extends the last run
+                nSize+=nCount;
+                return;
+            }
+            if (nRuns==nViewStarts.length) {
+                nViewStarts = Arrays.copyOf(nViewStarts, 2*nRuns);
+                nSourceStarts = Arrays.copyOf(nSourceStarts, 2*nRuns);
+            }
+            nViewStarts[nRuns] = nSize;
+            nSourceStarts[nRuns++] = nSource;
+            nSize+=nCount;
+        }
+        
+        // Get the number of indices in the view
+        int getSize() {
+            return nSize;
+        }
+        
+        // Get the original index of a view index (which must be in the range 0..getSize()-1)
+        int getSource(int nView) {
+            int nRun = Arrays.binarySearch(nViewStarts, 0, nRuns, nView);
+            if (nRun<0) { nRun = -nRun-2; }
+            return nSourceStarts[nRun]+nView-nViewStarts[nRun];
+        }
+        
+        // Get the first view index with an original index greater than or equal to the given index,
+        // or getSize() if there is no such view index
+        int getView(int nSource) {
+            int nRun = Arrays.binarySearch(nSourceStarts, 0, nRuns, nSource);
+            if (nRun>=0) { return nViewStarts[nRun]; }
+            nRun = -nRun-2;
+            if (nRun<0) { return 0; }
+            int nEnd = nRun+1<nRuns ? nViewStarts[nRun+1] : nSize;
+            return Math.min(nViewStarts[nRun]+nSource-nSourceStarts[nRun], nEnd);
+        }
+    }
+    
+    // A band of identical rows in the view. The cell views of the row are stored as runs of columns sharing a
+    // cell view (the original position of the cell view applies to the first row and column of the run).
+    private static final class RowBand {
+        private int nColCount;
+        private int[] nStarts = new int[4];
+        private CellView[] views = new CellView[4];
+        private int nBlocks = 1;
+        
+        RowBand(int nColCount) {
+            this.nColCount = nColCount;
+        }
+        
+        // Get the index of the run containing a column
+        int indexOf(int nCol) {
+            int nIndex = Arrays.binarySearch(nStarts, 0, nBlocks, nCol);
+            return nIndex>=0 ? nIndex : -nIndex-2;
+        }
+        
+        // Use a cell view for the columns nFrom..nTo-1, replacing the current cell views
+        void set(int nFrom, int nTo, CellView view) {
+            int nFirst = split(nFrom);
+            int nLast = split(nTo);
+            views[nFirst] = view;
+            if (nLast>nFirst+1) {
+                System.arraycopy(nStarts, nLast, nStarts, nFirst+1, nBlocks-nLast);
+                System.arraycopy(views, nLast, views, nFirst+1, nBlocks-nLast);
+                nBlocks -= nLast-nFirst-1;
+                Arrays.fill(views, nBlocks, views.length, null);
+            }
+        }
+        
+        // Use a cell view for the columns nFrom..nTo-1 which do not currently contain a cell
+        void fillEmpty(int nFrom, int nTo, CellView view) {
+            int nFirst = split(nFrom);
+            int nLast = split(nTo);
+            for (int i=nFirst; i<nLast; i++) {
+                if (views[i]==null || views[i].cell==null) {
+                    views[i] = nStarts[i]==nFrom ? view : createCellView(view.cell, view.nOriginalRow,
+                            view.nOriginalCol+nStarts[i]-nFrom, view.nRowSpan, view.nColSpan);
+                }
+            }
+        }
+        
+        // Make sure that a run starts at a given column, and return the index of this run
+        private int split(int nCol) {
+            if (nCol>=nColCount) {
+                return nBlocks;
+            }
+            int nIndex = indexOf(nCol);
+            if (nStarts[nIndex]==nCol) {
+                return nIndex;
+            }
+            if (nBlocks==nStarts.length) {
+                nStarts = Arrays.copyOf(nStarts, 2*nBlocks);
+                views = Arrays.copyOf(views, 2*nBlocks);
+            }
+            System.arraycopy(nStarts, nIndex+1, nStarts, nIndex+2, nBlocks-nIndex-1);
+            System.arraycopy(views, nIndex+1, views, nIndex+2, nBlocks-nIndex-1);
+            CellView view = views[nIndex];
+            nStarts[nIndex+1] = nCol;
+            views[nIndex+1] = view==null ? null : createCellView(view.cell, view.nOriginalRow,
+                    view.nOriginalCol+nCol-nStarts[nIndex], view.nRowSpan, view.nColSpan);
+            nBlocks++;
+            return nIndex+1;
+        }
+    }
 	
-	
-}
\ No newline at end of file
+}
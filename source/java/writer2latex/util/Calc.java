@@ -27,7 +27,8 @@ package writer2latex.util;
 
 /** A collection of static methods used to perform calculations on strings representing floating point numbers
  *  with units or percentages. In the JavaDoc, a length refers to a string like e.g. "21.7cm" and percent refers
- *  to a string like e.g. "2.5%".
+ *  to a string like e.g. "2.5%". The calculations on lengths are performed by {@link Length}, which should be
+ *  used directly for repeated calculations.
  */
 public class Calc {
 
@@ -69,16 +70,7 @@ public class Calc {
 	 * @return true if the value is close to zero
 	 */
 	public static boolean isZero(String sValue) {
-		return Math.abs(getFloat(sValue.substring(0, sValue.length()-2),0))<0.001;
-	}
-
-	// Return units per inch for some unit
-	private static final float getUpi(String sUnit) {
-	    if ("in".equals(sUnit)) { return 1.0F; }
-	    else if ("mm".equals(sUnit)) { return 25.4F; }
-	    else if ("cm".equals(sUnit)) { return 2.54F; }
-	    else if ("pc".equals(sUnit)) { return 6F; }
-	    else { return 72; } // pt or unknown
+		return Length.valueOf(sValue).isZero();
 	}
 
 	/** Convert a length to px assuming 96ppi; cf. the CSS spec (e.g. "0.1in" returns "9.6px").
@@ -88,22 +80,7 @@ public class Calc {
 	 * @return the converted length
 	 */
 	public static final String length2px(String sLength) {
-	    if (sLength.equals("0")) { return "0"; }
-	    float fLength=getFloat(sLength.substring(0,sLength.length()-2),1);
-	    String sUnit=sLength.substring(sLength.length()-2);
-	    float fPixels = 96.0F/getUpi(sUnit)*fLength;
-	    if (Math.abs(fPixels)<0.01) {
-	        // Very small, treat as zero
-	        return "0";
-	    }
-	    else if (fPixels>0) {
-	        // Never return less that 1px
-	        return Float.toString(fPixels<1 ? 1 : fPixels)+"px";
-	    }
-	    else {
-	        // Or above -1px
-	        return Float.toString(fPixels>-1 ? -1 : fPixels)+"px";
-	    }
+	    return Length.valueOf(sLength).toPx();
 	}
 
 	/** Divide dividend by divisor and return the quotient as an integer percentage
@@ -132,11 +109,9 @@ public class Calc {
 	    if (sDividend.equals("0")) { return "0%"; }
 	    if (sDivisor.equals("0")) { return "100%"; }
 	
-	    float fDividend=getFloat(sDividend.substring(0,sDividend.length()-2),1);
-	    String sDividendUnit=sDividend.substring(sDividend.length()-2);
-	    float fDivisor=getFloat(sDivisor.substring(0,sDivisor.length()-2),1);
-	    String sDivisorUnit=sDivisor.substring(sDivisor.length()-2);
-	    int nPercent = Math.round(100*fDividend*getUpi(sDivisorUnit)/fDivisor/getUpi(sDividendUnit));
+	    Length dividend = Length.valueOf(sDividend);
+	    Length divisor = Length.valueOf(sDivisor);
+	    int nPercent = Math.round(100*dividend.getValue()*divisor.getUpi()/divisor.getValue()/dividend.getUpi());
 	    if (bMax100 && nPercent>100) {
 	    	return "100%";
 	    }
@@ -157,9 +132,7 @@ public class Calc {
 	public static final String multiply(String sPercent, String sLength){
 	    if (sLength.equals("0")) { return "0"; }
 	    float fPercent=getFloat(sPercent.substring(0,sPercent.length()-1),1);
-	    float fLength=getFloat(sLength.substring(0,sLength.length()-2),1);
-	    String sUnit=sLength.substring(sLength.length()-2);
-	    return Float.toString(fPercent*fLength/100)+sUnit;
+	    return Length.valueOf(sLength).multiply(fPercent).toString();
 	}
 
 	/** Add two lengths (e.g. "2.5cm" added to "1.08cm" returns "3.58cm")
@@ -171,12 +144,8 @@ public class Calc {
 	public static final String add(String sLength1, String sLength2){
 	    if (sLength1.equals("0")) { return sLength2; }
 	    if (sLength2.equals("0")) { return sLength1; }
-	    float fLength1=getFloat(sLength1.substring(0,sLength1.length()-2),1);
-	    String sUnit1=sLength1.substring(sLength1.length()-2);
-	    float fLength2=getFloat(sLength2.substring(0,sLength2.length()-2),1);
-	    String sUnit2=sLength2.substring(sLength2.length()-2);
 	    // Use unit from sLength1:
-	    return Float.toString(fLength1+getUpi(sUnit1)/getUpi(sUnit2)*fLength2)+sUnit1;
+	    return Length.valueOf(sLength1).add(Length.valueOf(sLength2)).toString();
 	}
 
 	/** Subtract two lengths (e.g. "2.5cm" subtracted by "1.08cm" returns "1.42cm")
@@ -186,7 +155,7 @@ public class Calc {
 	 * @return the difference (as a length with the same unit as the first term)
 	 */
 	public static final String sub(String sLength1, String sLength2){
-	    return add(sLength1,multiply("-100%",sLength2));
+	    return Length.valueOf(sLength1).sub(Length.valueOf(sLength2)).toString();
 	}
 
 	/** Test whether a given length is smaller than another length
@@ -197,7 +166,7 @@ public class Calc {
 	 * @return true is the first length is smaller than the second length
 	 */
 	public static boolean isLessThan(String sThis, String sThat) {
-	    return sub(sThis,sThat).startsWith("-");
+	    return Length.valueOf(sThis).sub(Length.valueOf(sThat)).isNegative();
 	}
 
 	/** Get the absolute value of a length (e.g. "-2.5cm" returns "2.5cm")
@@ -0,0 +1,118 @@
+/************************************************************************
+ *
+ *  CompactAttr.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+package writer2latex.util;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.TypeInfo;
+import org.w3c.dom.Attr;
+
+/** An attribute node in a compact DOM tree. The attributes are stored in the element, and attribute nodes
+ *  are only created on request as a view of an attribute of the element
+ */
+final class CompactAttr extends CompactNode implements Attr {
+	
+	private CompactElement owner;
+	private String sName;
+	private String sValue;
+	
+	CompactAttr(CompactDocument doc, CompactElement owner, String sName, String sValue) {
+		super(doc);
+		this.owner = owner;
+		this.sName = sName;
+		this.sValue = sValue;
+	}
+	
+	// Implement Node
+	
+	public String getNodeName() {
+		return sName;
+	}
+
+	public short getNodeType() {
+		return Node.ATTRIBUTE_NODE;
+	}
+	
+	@Override public String getNodeValue() {
+		return sValue;
+	}
+
+	@Override public void setNodeValue(String sNodeValue) {
+		setValue(sNodeValue);
+	}
+	
+	@Override public Node getParentNode() {
+		return null;
+	}
+	
+	@Override public Node getPreviousSibling() {
+		return null;
+	}
+
+	@Override public Node getNextSibling() {
+		return null;
+	}
+
+	public Node cloneNode(boolean bDeep) {
+		return new CompactAttr(doc, null, sName, sValue);
+	}
+	
+	// Implement Attr
+
+	public String getName() {
+		return sName;
+	}
+
+	public boolean getSpecified() {
+		return true;
+	}
+
+	public String getValue() {
+		return sValue;
+	}
+
+	public void setValue(String sValue) throws DOMException {
+		this.sValue = sValue;
+		if (owner!=null) {
+			owner.setAttribute(sName, sValue);
+		}
+	}
+
+	public Element getOwnerElement() {
+		return owner;
+	}
+
+	public TypeInfo getSchemaTypeInfo() {
+		return null;
+	}
+
+	public boolean isId() {
+		return false;
+	}
+
+}
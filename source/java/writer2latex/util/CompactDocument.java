@@ -0,0 +1,279 @@
+/************************************************************************
+ *
+ *  CompactDocument.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+package writer2latex.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.Comment;
+import org.w3c.dom.DOMConfiguration;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Element;
+import org.w3c.dom.EntityReference;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+import org.w3c.dom.Text;
+
+/** This class implements a compact DOM tree, which supports element and text nodes only.
+ *  The tree is much smaller than a general DOM tree: Children and attributes are stored in arrays,
+ *  and tag and attribute names are shared within the document. Namespaces are not supported, and
+ *  the tree can only be modified in simple ways (inserting and removing nodes, and changing attributes
+ *  and text).
+ */
+final class CompactDocument extends CompactParentNode implements Document {
+	
+	// Shared tag and attribute names
+	private Map<String,String> names = new HashMap<String,String>();
+	
+	/** Create a new document with a document element
+	 * 
+	 * @param sTagName the tag name of the document element
+	 */
+	CompactDocument(String sTagName) {
+		super(null);
+		doc = this;
+		appendChild(createElement(sTagName));
+	}
+	
+	/** Get the shared instance of a tag or attribute name
+	 * 
+	 * @param sName the name
+	 * @return a string equal to the name
+	 */
+	String getName(String sName) {
+		String sSharedName = names.get(sName);
+		if (sSharedName==null) {
+			names.put(sName, sName);
+			return sName;
+		}
+		return sSharedName;
+	}
+	
+	/** Release resources that are only needed while building the tree
+	 */
+	void trimAll() {
+		names = new HashMap<String,String>();
+		trim(this);
+	}
+	
+	private static void trim(CompactParentNode node) {
+		node.trimToSize();
+		for (int i=0; i<node.nChildCount; i++) {
+			if (node.children[i] instanceof CompactParentNode) {
+				trim((CompactParentNode) node.children[i]);
+			}
+		}
+	}
+	
+	// Implement Node
+	
+	public String getNodeName() {
+		return "#document";
+	}
+
+	public short getNodeType() {
+		return Node.DOCUMENT_NODE;
+	}
+
+	@Override public Document getOwnerDocument() {
+		return null;
+	}
+	
+	@Override public String getTextContent() {
+		return null;
+	}
+	
+	@Override public void setTextContent(String sTextContent) {
+		// Has no effect on documents
+	}
+
+	public Node cloneNode(boolean bDeep) {
+		throw notSupported();
+	}
+	
+	// Implement Document
+
+	public DocumentType getDoctype() {
+		return null;
+	}
+
+	public DOMImplementation getImplementation() {
+		throw notSupported();
+	}
+
+	public Element getDocumentElement() {
+		for (int i=0; i<nChildCount; i++) {
+			if (children[i] instanceof Element) {
+				return (Element) children[i];
+			}
+		}
+		return null;
+	}
+
+	public Element createElement(String sTagName) throws DOMException {
+		return new CompactElement(this, getName(sTagName));
+	}
+
+	public DocumentFragment createDocumentFragment() {
+		throw notSupported();
+	}
+
+	public Text createTextNode(String sData) {
+		return new CompactText(this, sData);
+	}
+
+	public Comment createComment(String sData) {
+		throw notSupported();
+	}
+
+	public CDATASection createCDATASection(String sData) throws DOMException {
+		throw notSupported();
+	}
+
+	public ProcessingInstruction createProcessingInstruction(String sTarget, String sData) throws DOMException {
+		throw notSupported();
+	}
+
+	public Attr createAttribute(String sName) throws DOMException {
+		return new CompactAttr(this, null, getName(sName), "");
+	}
+
+	public EntityReference createEntityReference(String sName) throws DOMException {
+		throw notSupported();
+	}
+
+	@Override public NodeList getElementsByTagName(String sTagName) {
+		return super.getElementsByTagName(sTagName);
+	}
+
+	public Node importNode(Node importedNode, boolean bDeep) throws DOMException {
+		switch (importedNode.getNodeType()) {
+		case Node.ELEMENT_NODE:
+			Element elm = createElement(importedNode.getNodeName());
+			org.w3c.dom.NamedNodeMap attributes = importedNode.getAttributes();
+			int nLen = attributes.getLength();
+			for (int i=0; i<nLen; i++) {
+				Node attr = attributes.item(i);
+				elm.setAttribute(getName(attr.getNodeName()), attr.getNodeValue());
+			}
+			if (bDeep) {
+				for (Node child=importedNode.getFirstChild(); child!=null; child=child.getNextSibling()) {
+					short nType = child.getNodeType();
+					if (nType==Node.ELEMENT_NODE || nType==Node.TEXT_NODE || nType==Node.CDATA_SECTION_NODE) {
+						elm.appendChild(importNode(child, true));
+					}
+				}
+			}
+			return elm;
+		case Node.TEXT_NODE:
+		case Node.CDATA_SECTION_NODE:
+			return createTextNode(importedNode.getNodeValue());
+		case Node.ATTRIBUTE_NODE:
+			return new CompactAttr(this, null, getName(importedNode.getNodeName()), importedNode.getNodeValue());
+		default:
+			throw notSupported();
+		}
+	}
+
+	public Element createElementNS(String sNamespaceURI, String sQualifiedName) throws DOMException {
+		throw notSupported();
+	}
+
+	public Attr createAttributeNS(String sNamespaceURI, String sQualifiedName) throws DOMException {
+		throw notSupported();
+	}
+
+	public NodeList getElementsByTagNameNS(String sNamespaceURI, String sLocalName) {
+		throw notSupported();
+	}
+
+	public Element getElementById(String sElementId) {
+		return null;
+	}
+
+	public String getInputEncoding() {
+		return null;
+	}
+
+	public String getXmlEncoding() {
+		return null;
+	}
+
+	public boolean getXmlStandalone() {
+		return false;
+	}
+
+	public void setXmlStandalone(boolean bXmlStandalone) throws DOMException {
+		throw notSupported();
+	}
+
+	public String getXmlVersion() {
+		return "1.0";
+	}
+
+	public void setXmlVersion(String sXmlVersion) throws DOMException {
+		throw notSupported();
+	}
+
+	public boolean getStrictErrorChecking() {
+		return true;
+	}
+
+	public void setStrictErrorChecking(boolean bStrictErrorChecking) {
+	}
+
+	public String getDocumentURI() {
+		return null;
+	}
+
+	public void setDocumentURI(String sDocumentURI) {
+	}
+
+	public Node adoptNode(Node source) throws DOMException {
+		throw notSupported();
+	}
+
+	public DOMConfiguration getDomConfig() {
+		throw notSupported();
+	}
+
+	public void normalizeDocument() {
+		normalize();
+	}
+
+	public Node renameNode(Node n, String sNamespaceURI, String sQualifiedName) throws DOMException {
+		throw notSupported();
+	}
+
+}
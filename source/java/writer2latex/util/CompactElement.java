@@ -0,0 +1,254 @@
+/************************************************************************
+ *
+ *  CompactElement.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+package writer2latex.util;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+/** An element in a compact DOM tree. The attributes are stored as an array of alternating names and values,
+ *  and attribute nodes are only created if requested.
+ */
+final class CompactElement extends CompactParentNode implements Element {
+	
+	private static final String[] NO_ATTRIBUTES = new String[0];
+	
+	final String sTagName;
+	private String[] attributes = NO_ATTRIBUTES;
+	private int nAttributeCount = 0;
+	
+	CompactElement(CompactDocument doc, String sTagName) {
+		super(doc);
+		this.sTagName = sTagName;
+	}
+	
+	private int indexOfAttribute(String sName) {
+		for (int i=0; i<nAttributeCount; i++) {
+			if (attributes[2*i].equals(sName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	// Implement Node
+	
+	public String getNodeName() {
+		return sTagName;
+	}
+
+	public short getNodeType() {
+		return Node.ELEMENT_NODE;
+	}
+	
+	@Override public NamedNodeMap getAttributes() {
+		return new NamedNodeMap() {
+			public Node getNamedItem(String sName) {
+				return getAttributeNode(sName);
+			}
+
+			public Node setNamedItem(Node arg) throws DOMException {
+				return setAttributeNode((Attr) arg);
+			}
+
+			public Node removeNamedItem(String sName) throws DOMException {
+				Attr attr = getAttributeNode(sName);
+				if (attr==null) {
+					throw new DOMException(DOMException.NOT_FOUND_ERR, "No such attribute");
+				}
+				removeAttribute(sName);
+				return attr;
+			}
+
+			public Node item(int nIndex) {
+				if (nIndex>=0 && nIndex<nAttributeCount) {
+					return new CompactAttr(doc, CompactElement.this, attributes[2*nIndex], attributes[2*nIndex+1]);
+				}
+				return null;
+			}
+
+			public int getLength() {
+				return nAttributeCount;
+			}
+
+			public Node getNamedItemNS(String sNamespaceURI, String sLocalName) throws DOMException {
+				throw notSupported();
+			}
+
+			public Node setNamedItemNS(Node arg) throws DOMException {
+				throw notSupported();
+			}
+
+			public Node removeNamedItemNS(String sNamespaceURI, String sLocalName) throws DOMException {
+				throw notSupported();
+			}
+		};
+	}
+	
+	@Override public boolean hasAttributes() {
+		return nAttributeCount>0;
+	}
+	
+	public Node cloneNode(boolean bDeep) {
+		CompactElement clone = new CompactElement(doc, sTagName);
+		if (nAttributeCount>0) {
+			clone.attributes = new String[2*nAttributeCount];
+			System.arraycopy(attributes, 0, clone.attributes, 0, 2*nAttributeCount);
+			clone.nAttributeCount = nAttributeCount;
+		}
+		if (bDeep) {
+			for (int i=0; i<nChildCount; i++) {
+				clone.appendChild(children[i].cloneNode(true));
+			}
+		}
+		return clone;
+	}
+	
+	// Implement Element
+	
+	public String getTagName() {
+		return sTagName;
+	}
+
+	public String getAttribute(String sName) {
+		int nIndex = indexOfAttribute(sName);
+		return nIndex>=0 ? attributes[2*nIndex+1] : "";
+	}
+
+	public void setAttribute(String sName, String sValue) throws DOMException {
+		int nIndex = indexOfAttribute(sName);
+		if (nIndex>=0) {
+			attributes[2*nIndex+1] = sValue;
+		}
+		else {
+			if (2*nAttributeCount==attributes.length) {
+				String[] newAttributes = new String[Math.max(2, 4*nAttributeCount)];
+				System.arraycopy(attributes, 0, newAttributes, 0, 2*nAttributeCount);
+				attributes = newAttributes;
+			}
+			attributes[2*nAttributeCount] = doc.getName(sName);
+			attributes[2*nAttributeCount+1] = sValue;
+			nAttributeCount++;
+		}
+	}
+
+	public void removeAttribute(String sName) throws DOMException {
+		int nIndex = indexOfAttribute(sName);
+		if (nIndex>=0) {
+			System.arraycopy(attributes, 2*nIndex+2, attributes, 2*nIndex, 2*(nAttributeCount-nIndex-1));
+			nAttributeCount--;
+			attributes[2*nAttributeCount] = null;
+			attributes[2*nAttributeCount+1] = null;
+		}
+	}
+
+	public Attr getAttributeNode(String sName) {
+		int nIndex = indexOfAttribute(sName);
+		return nIndex>=0 ? new CompactAttr(doc, this, sName, attributes[2*nIndex+1]) : null;
+	}
+
+	public Attr setAttributeNode(Attr newAttr) throws DOMException {
+		Attr oldAttr = getAttributeNode(newAttr.getName());
+		setAttribute(newAttr.getName(), newAttr.getValue());
+		return oldAttr;
+	}
+
+	public Attr removeAttributeNode(Attr oldAttr) throws DOMException {
+		if (!hasAttribute(oldAttr.getName())) {
+			throw new DOMException(DOMException.NOT_FOUND_ERR, "No such attribute");
+		}
+		removeAttribute(oldAttr.getName());
+		return oldAttr;
+	}
+
+	@Override public NodeList getElementsByTagName(String sName) {
+		return super.getElementsByTagName(sName);
+	}
+
+	public String getAttributeNS(String sNamespaceURI, String sLocalName) throws DOMException {
+		throw notSupported();
+	}
+
+	public void setAttributeNS(String sNamespaceURI, String sQualifiedName, String sValue) throws DOMException {
+		throw notSupported();
+	}
+
+	public void removeAttributeNS(String sNamespaceURI, String sLocalName) throws DOMException {
+		throw notSupported();
+	}
+
+	public Attr getAttributeNodeNS(String sNamespaceURI, String sLocalName) throws DOMException {
+		throw notSupported();
+	}
+
+	public Attr setAttributeNodeNS(Attr newAttr) throws DOMException {
+		throw notSupported();
+	}
+
+	public NodeList getElementsByTagNameNS(String sNamespaceURI, String sLocalName) throws DOMException {
+		throw notSupported();
+	}
+
+	public boolean hasAttribute(String sName) {
+		return indexOfAttribute(sName)>=0;
+	}
+
+	public boolean hasAttributeNS(String sNamespaceURI, String sLocalName) throws DOMException {
+		throw notSupported();
+	}
+
+	public TypeInfo getSchemaTypeInfo() {
+		return null;
+	}
+
+	public void setIdAttribute(String sName, boolean bIsId) throws DOMException {
+		throw notSupported();
+	}
+
+	public void setIdAttributeNS(String sNamespaceURI, String sLocalName, boolean bIsId) throws DOMException {
+		throw notSupported();
+	}
+
+	public void setIdAttributeNode(Attr idAttr, boolean bIsId) throws DOMException {
+		throw notSupported();
+	}
+	
+	// Release unused capacity in the attribute and children arrays
+	@Override void trimToSize() {
+		super.trimToSize();
+		if (attributes.length>2*nAttributeCount) {
+			String[] newAttributes = nAttributeCount>0 ? new String[2*nAttributeCount] : NO_ATTRIBUTES;
+			System.arraycopy(attributes, 0, newAttributes, 0, 2*nAttributeCount);
+			attributes = newAttributes;
+		}
+	}
+
+}
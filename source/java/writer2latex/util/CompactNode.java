@@ -0,0 +1,195 @@
+/************************************************************************
+ *
+ *  CompactNode.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+package writer2latex.util;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.UserDataHandler;
+
+/** This is the base class for the nodes of a compact DOM tree. A node only knows its owner document,
+ *  its parent and its position among the children of the parent; the siblings are found from the parent.
+ *  Namespaces, user data and other DOM level 3 features are not supported.
+ */
+abstract class CompactNode implements Node {
+	
+	// A shared empty node list for nodes without children
+	static final NodeList EMPTY_NODE_LIST = new NodeList() {
+		public Node item(int nIndex) { return null; }
+		public int getLength() { return 0; }
+	};
+	
+	CompactDocument doc;
+	CompactParentNode parent = null;
+	int nIndex = -1;
+	
+	CompactNode(CompactDocument doc) {
+		this.doc = doc;
+	}
+	
+	static DOMException notSupported() {
+		return new DOMException(DOMException.NOT_SUPPORTED_ERR, "Not supported by the compact DOM");
+	}
+	
+	public String getNodeValue() throws DOMException {
+		return null;
+	}
+
+	public void setNodeValue(String sNodeValue) throws DOMException {
+		// Has no effect for nodes without a value
+	}
+
+	public Node getParentNode() {
+		return parent;
+	}
+
+	public NodeList getChildNodes() {
+		return EMPTY_NODE_LIST;
+	}
+
+	public Node getFirstChild() {
+		return null;
+	}
+
+	public Node getLastChild() {
+		return null;
+	}
+
+	public Node getPreviousSibling() {
+		return parent!=null && nIndex>0 ? parent.children[nIndex-1] : null;
+	}
+
+	public Node getNextSibling() {
+		return parent!=null && nIndex+1<parent.nChildCount ? parent.children[nIndex+1] : null;
+	}
+
+	public NamedNodeMap getAttributes() {
+		return null;
+	}
+
+	public Document getOwnerDocument() {
+		return doc;
+	}
+
+	public Node insertBefore(Node newChild, Node refChild) throws DOMException {
+		throw new DOMException(DOMException.HIERARCHY_REQUEST_ERR, "This node cannot have children");
+	}
+
+	public Node replaceChild(Node newChild, Node oldChild) throws DOMException {
+		throw new DOMException(DOMException.HIERARCHY_REQUEST_ERR, "This node cannot have children");
+	}
+
+	public Node removeChild(Node oldChild) throws DOMException {
+		throw new DOMException(DOMException.NOT_FOUND_ERR, "This node has no children");
+	}
+
+	public Node appendChild(Node newChild) throws DOMException {
+		throw new DOMException(DOMException.HIERARCHY_REQUEST_ERR, "This node cannot have children");
+	}
+
+	public boolean hasChildNodes() {
+		return false;
+	}
+
+	public void normalize() {
+	}
+
+	public boolean isSupported(String sFeature, String sVersion) {
+		return false;
+	}
+
+	public String getNamespaceURI() {
+		return null;
+	}
+
+	public String getPrefix() {
+		return null;
+	}
+
+	public void setPrefix(String sPrefix) throws DOMException {
+		throw notSupported();
+	}
+
+	public String getLocalName() {
+		return null;
+	}
+
+	public boolean hasAttributes() {
+		return false;
+	}
+
+	public String getBaseURI() {
+		return null;
+	}
+
+	public short compareDocumentPosition(Node other) throws DOMException {
+		throw notSupported();
+	}
+
+	public String getTextContent() throws DOMException {
+		return getNodeValue();
+	}
+
+	public void setTextContent(String sTextContent) throws DOMException {
+		setNodeValue(sTextContent);
+	}
+
+	public boolean isSameNode(Node other) {
+		return this==other;
+	}
+
+	public String lookupPrefix(String sNamespaceURI) {
+		return null;
+	}
+
+	public boolean isDefaultNamespace(String sNamespaceURI) {
+		return false;
+	}
+
+	public String lookupNamespaceURI(String sPrefix) {
+		return null;
+	}
+
+	public boolean isEqualNode(Node arg) {
+		throw notSupported();
+	}
+
+	public Object getFeature(String sFeature, String sVersion) {
+		return null;
+	}
+
+	public Object setUserData(String sKey, Object data, UserDataHandler handler) {
+		throw notSupported();
+	}
+
+	public Object getUserData(String sKey) {
+		return null;
+	}
+
+}
@@ -0,0 +1,254 @@
+/************************************************************************
+ *
+ *  CompactParentNode.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+package writer2latex.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/** This is the base class for nodes of a compact DOM tree that can have children.
+ *  The children are stored in an array, and the node itself serves as the (live) list of children.
+ */
+abstract class CompactParentNode extends CompactNode implements NodeList {
+	
+	CompactNode[] children = null;
+	int nChildCount = 0;
+	
+	CompactParentNode(CompactDocument doc) {
+		super(doc);
+	}
+	
+	// Implement NodeList
+	
+	public Node item(int nIndex) {
+		return nIndex>=0 && nIndex<nChildCount ? children[nIndex] : null;
+	}
+
+	public int getLength() {
+		return nChildCount;
+	}
+	
+	// Override Node
+	
+	@Override public NodeList getChildNodes() {
+		return this;
+	}
+
+	@Override public Node getFirstChild() {
+		return nChildCount>0 ? children[0] : null;
+	}
+
+	@Override public Node getLastChild() {
+		return nChildCount>0 ? children[nChildCount-1] : null;
+	}
+	
+	@Override public boolean hasChildNodes() {
+		return nChildCount>0;
+	}
+
+	@Override public Node appendChild(Node newChild) throws DOMException {
+		return insertAt(checkNewChild(newChild), nChildCount);
+	}
+
+	@Override public Node insertBefore(Node newChild, Node refChild) throws DOMException {
+		if (refChild==null) {
+			return appendChild(newChild);
+		}
+		CompactNode child = checkNewChild(newChild);
+		if (child==refChild) {
+			return child;
+		}
+		return insertAt(child, indexOf(refChild));
+	}
+
+	@Override public Node replaceChild(Node newChild, Node oldChild) throws DOMException {
+		CompactNode child = checkNewChild(newChild);
+		if (child!=oldChild) {
+			int nIndex = indexOf(oldChild);
+			removeAt(nIndex);
+			insertAt(child, nIndex);
+		}
+		return oldChild;
+	}
+
+	@Override public Node removeChild(Node oldChild) throws DOMException {
+		removeAt(indexOf(oldChild));
+		return oldChild;
+	}
+	
+	@Override public void normalize() {
+		for (int i=0; i<nChildCount; i++) {
+			CompactNode child = children[i];
+			if (child instanceof CompactText) {
+				CompactText text = (CompactText) child;
+				while (i+1<nChildCount && children[i+1] instanceof CompactText) {
+					text.sData+=((CompactText)children[i+1]).sData;
+					removeAt(i+1);
+				}
+				if (text.sData.length()==0) {
+					removeAt(i--);
+				}
+			}
+			else {
+				child.normalize();
+			}
+		}
+	}
+	
+	@Override public String getTextContent() throws DOMException {
+		StringBuilder buf = new StringBuilder();
+		collectText(buf);
+		return buf.toString();
+	}
+	
+	@Override public void setTextContent(String sTextContent) throws DOMException {
+		while (nChildCount>0) {
+			removeAt(nChildCount-1);
+		}
+		if (sTextContent!=null && sTextContent.length()>0) {
+			appendChild(doc.createTextNode(sTextContent));
+		}
+	}
+	
+	private void collectText(StringBuilder buf) {
+		for (int i=0; i<nChildCount; i++) {
+			CompactNode child = children[i];
+			if (child instanceof CompactText) {
+				buf.append(((CompactText)child).sData);
+			}
+			else if (child instanceof CompactParentNode) {
+				((CompactParentNode)child).collectText(buf);
+			}
+		}
+	}
+	
+	// Collect all descendant elements with a given tag name (or all elements if the name is *) in document order
+	void collectElements(String sTagName, List<Node> result) {
+		boolean bAll = "*".equals(sTagName);
+		for (int i=0; i<nChildCount; i++) {
+			CompactNode child = children[i];
+			if (child instanceof CompactElement) {
+				CompactElement elm = (CompactElement) child;
+				if (bAll || elm.sTagName.equals(sTagName)) {
+					result.add(elm);
+				}
+				elm.collectElements(sTagName, result);
+			}
+		}
+	}
+	
+	NodeList getElementsByTagName(String sTagName) {
+		final List<Node> result = new ArrayList<Node>();
+		collectElements(sTagName, result);
+		return new NodeList() {
+			public Node item(int nIndex) {
+				return nIndex>=0 && nIndex<result.size() ? result.get(nIndex) : null;
+			}
+
+			public int getLength() {
+				return result.size();
+			}
+		};
+	}
+	
+	// Check that a node can be inserted as a child of this node and detach it from its current parent
+	private CompactNode checkNewChild(Node newChild) {
+		if (!(newChild instanceof CompactNode) || ((CompactNode)newChild).doc!=doc) {
+			throw new DOMException(DOMException.WRONG_DOCUMENT_ERR, "The node belongs to another document");
+		}
+		if (newChild instanceof CompactAttr || newChild instanceof CompactDocument) {
+			throw new DOMException(DOMException.HIERARCHY_REQUEST_ERR, "The node cannot be inserted here");
+		}
+		for (CompactParentNode ancestor=this; ancestor!=null; ancestor=ancestor.parent) {
+			if (ancestor==newChild) {
+				throw new DOMException(DOMException.HIERARCHY_REQUEST_ERR, "The node is an ancestor of this node");
+			}
+		}
+		CompactNode child = (CompactNode) newChild;
+		if (child.parent!=null && child.parent!=this) {
+			child.parent.removeAt(child.nIndex);
+		}
+		return child;
+	}
+	
+	private int indexOf(Node node) {
+		if (node instanceof CompactNode && ((CompactNode)node).parent==this) {
+			return ((CompactNode)node).nIndex;
+		}
+		throw new DOMException(DOMException.NOT_FOUND_ERR, "The node is not a child of this node");
+	}
+	
+	private Node insertAt(CompactNode child, int nIndex) {
+		if (child.parent==this) {
+			// Moving a child within this node
+			if (child.nIndex<nIndex) { nIndex--; }
+			removeAt(child.nIndex);
+		}
+		if (children==null) {
+			children = new CompactNode[4];
+		}
+		else if (nChildCount==children.length) {
+			CompactNode[] newChildren = new CompactNode[2*nChildCount];
+			System.arraycopy(children, 0, newChildren, 0, nChildCount);
+			children = newChildren;
+		}
+		System.arraycopy(children, nIndex, children, nIndex+1, nChildCount-nIndex);
+		children[nIndex] = child;
+		nChildCount++;
+		child.parent = this;
+		renumber(nIndex);
+		return child;
+	}
+	
+	private void removeAt(int nIndex) {
+		CompactNode child = children[nIndex];
+		System.arraycopy(children, nIndex+1, children, nIndex, nChildCount-nIndex-1);
+		children[--nChildCount] = null;
+		child.parent = null;
+		child.nIndex = -1;
+		renumber(nIndex);
+	}
+	
+	private void renumber(int nFrom) {
+		for (int i=nFrom; i<nChildCount; i++) {
+			children[i].nIndex = i;
+		}
+	}
+	
+	// Release unused capacity in the children array (used when the tree is complete)
+	void trimToSize() {
+		if (children!=null && children.length>nChildCount) {
+			CompactNode[] newChildren = new CompactNode[nChildCount];
+			System.arraycopy(children, 0, newChildren, 0, nChildCount);
+			children = newChildren;
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+/************************************************************************
+ *
+ *  CompactText.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+package writer2latex.util;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+/** A text node in a compact DOM tree
+ */
+final class CompactText extends CompactNode implements Text {
+	
+	String sData;
+	
+	CompactText(CompactDocument doc, String sData) {
+		super(doc);
+		this.sData = sData;
+	}
+	
+	// Implement Node
+	
+	public String getNodeName() {
+		return "#text";
+	}
+
+	public short getNodeType() {
+		return Node.TEXT_NODE;
+	}
+	
+	@Override public String getNodeValue() {
+		return sData;
+	}
+
+	@Override public void setNodeValue(String sNodeValue) {
+		sData = sNodeValue!=null ? sNodeValue : "";
+	}
+	
+	public Node cloneNode(boolean bDeep) {
+		return new CompactText(doc, sData);
+	}
+	
+	// Implement CharacterData
+
+	public String getData() {
+		return sData;
+	}
+
+	public void setData(String sData) {
+		setNodeValue(sData);
+	}
+
+	public int getLength() {
+		return sData.length();
+	}
+
+	public String substringData(int nOffset, int nCount) throws DOMException {
+		checkOffset(nOffset);
+		return sData.substring(nOffset, Math.min(nOffset+nCount, sData.length()));
+	}
+
+	public void appendData(String sArg) {
+		sData+=sArg;
+	}
+
+	public void insertData(int nOffset, String sArg) throws DOMException {
+		checkOffset(nOffset);
+		sData = sData.substring(0, nOffset)+sArg+sData.substring(nOffset);
+	}
+
+	public void deleteData(int nOffset, int nCount) throws DOMException {
+		replaceData(nOffset, nCount, "");
+	}
+
+	public void replaceData(int nOffset, int nCount, String sArg) throws DOMException {
+		checkOffset(nOffset);
+		sData = sData.substring(0, nOffset)+sArg+sData.substring(Math.min(nOffset+nCount, sData.length()));
+	}
+	
+	// Implement Text
+
+	public Text splitText(int nOffset) throws DOMException {
+		checkOffset(nOffset);
+		CompactText text = new CompactText(doc, sData.substring(nOffset));
+		sData = sData.substring(0, nOffset);
+		if (parent!=null) {
+			parent.insertBefore(text, getNextSibling());
+		}
+		return text;
+	}
+
+	public boolean isElementContentWhitespace() {
+		return false;
+	}
+
+	public String getWholeText() {
+		return sData;
+	}
+
+	public Text replaceWholeText(String sContent) throws DOMException {
+		setNodeValue(sContent);
+		return this;
+	}
+	
+	private void checkOffset(int nOffset) {
+		if (nOffset<0 || nOffset>sData.length()) {
+			throw new DOMException(DOMException.INDEX_SIZE_ERR, "Offset out of range");
+		}
+	}
+
+}
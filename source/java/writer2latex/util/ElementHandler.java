@@ -0,0 +1,45 @@
+/************************************************************************
+ *
+ *  ElementHandler.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+package writer2latex.util;
+
+import java.io.IOException;
+
+import org.w3c.dom.Element;
+
+/** This interface is used to receive the elements of a DOM tree one at a time while the tree is being built
+ * (see {@link SimpleXMLParser#parse(java.io.InputStream, Element, ElementHandler)})
+ */
+public interface ElementHandler {
+	
+	/** Handle an element, which has been completely read
+	 * 
+	 * @param element the element
+	 * @throws IOException if the handler fails to process the element
+	 */
+	public void handleElement(Element element) throws IOException;
+
+}
@@ -0,0 +1,231 @@
+/************************************************************************
+ *
+ *  Length.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+
+package writer2latex.util;
+
+/** This class represents a length, ie. a floating point number with a two letter unit (e.g. "17.5cm"), or the
+ *  special length "0". A <code>Length</code> is immutable. It is parsed once, and can be used in calculations
+ *  without the string parsing and formatting otherwise performed by the methods in {@link Calc}.
+ *  The calculations produce exactly the same results as the corresponding string based methods in
+ *  <code>Calc</code>.
+ */
+public final class Length {
+	/** The length "0" */
+	public static final Length ZERO = new Length("0",0,"",true);
+	
+	// Recently parsed lengths, indexed by the hash code of the string
+	private static final int CACHE_SIZE = 1024;
+	private static final Length[] cache = new Length[CACHE_SIZE];
+
+	private final float fValue;
+	private final String sUnit;
+	private final boolean bNumber;
+	private final boolean bZero;
+	// The parsed string, or null if this length is the result of a calculation
+	private final String sLength;
+	// The string representation of the result of a calculation, created on demand
+	private String sResult = null;
+
+	private Length(String sLength, float fValue, String sUnit, boolean bNumber) {
+		this.sLength = sLength;
+		this.fValue = fValue;
+		this.sUnit = sUnit;
+		this.bNumber = bNumber;
+		this.bZero = "0".equals(sLength);
+	}
+	
+	// Create the result of a calculation
+	private Length(float fValue, String sUnit) {
+		this.sLength = null;
+		this.fValue = fValue;
+		this.sUnit = sUnit;
+		this.bNumber = true;
+		this.bZero = false;
+	}
+
+	/** Get the <code>Length</code> represented by a string (e.g. "17.5cm"). If the same string has been
+	 *  parsed recently, the previous result is returned.
+	 * 
+	 * @param sLength the string to parse
+	 * @return the length
+	 * @throws StringIndexOutOfBoundsException if the string is shorter than two characters (and not "0")
+	 */
+	public static Length valueOf(String sLength) {
+		int nIndex = sLength.hashCode() & (CACHE_SIZE-1);
+		Length length = cache[nIndex];
+		if (length!=null && sLength.equals(length.sLength)) {
+			return length;
+		}
+		if (sLength.equals("0")) {
+			length = ZERO;
+		}
+		else {
+			int nSplit = sLength.length()-2;
+			String sNumber = sLength.substring(0,nSplit);
+			float fValue;
+			boolean bNumber;
+			try {
+				fValue = Float.parseFloat(sNumber);
+				bNumber = true;
+			}
+			catch (NumberFormatException e) {
+				fValue = 1;
+				bNumber = false;
+			}
+			length = new Length(sLength,fValue,sLength.substring(nSplit),bNumber);
+		}
+		cache[nIndex] = length;
+		return length;
+	}
+	
+	/** Is this the length "0"?
+	 * 
+	 * @return true if so
+	 */
+	public boolean isZeroLength() {
+		return bZero;
+	}
+	
+	/** Check whether this length is zero within a tolerance of 0.001 (e.g. "0.0005cm" returns true)
+	 * 
+	 * @return true if the value is close to zero (or cannot be parsed as a number)
+	 */
+	public boolean isZero() {
+		return bZero || !bNumber || Math.abs(fValue)<0.001;
+	}
+	
+	/** Is this length negative, ie. does the string representation start with a minus?
+	 * 
+	 * @return true if this is the case
+	 */
+	public boolean isNegative() {
+		if (sLength!=null) {
+			return sLength.startsWith("-");
+		}
+		return !Float.isNaN(fValue) && Float.floatToRawIntBits(fValue)<0;
+	}
+
+	/** Get the numeric value of this length in its own unit
+	 * 
+	 * @return the value, or 1 if the length cannot be parsed as a number
+	 */
+	public float getValue() {
+		return fValue;
+	}
+
+	/** Get the unit of this length
+	 * 
+	 * @return the unit, or the empty string for the length "0"
+	 */
+	public String getUnit() {
+		return sUnit;
+	}
+	
+	/** Get the number of units per inch for the unit of this length
+	 * 
+	 * @return the number of units per inch (pt is assumed for unknown units)
+	 */
+	public float getUpi() {
+		return getUpi(sUnit);
+	}
+
+	/** Add another length to this length (e.g. "2.5cm" added to "1.08cm" returns "3.58cm")
+	 * 
+	 * @param length the length to add
+	 * @return the sum (as a length with the same unit as this length)
+	 */
+	public Length add(Length length) {
+		if (bZero) { return length; }
+		if (length.bZero) { return this; }
+		return new Length(fValue+getUpi()/length.getUpi()*length.fValue,sUnit);
+	}
+	
+	/** Subtract another length from this length (e.g. "2.5cm" subtracted by "1.08cm" returns "1.42cm")
+	 * 
+	 * @param length the length to subtract
+	 * @return the difference (as a length with the same unit as this length)
+	 */
+	public Length sub(Length length) {
+		return add(length.multiply(-100F));
+	}
+
+	/** Multiply this length by a percentage (e.g. 150 multiplied with "2.5mm" returns "3.75mm")
+	 * 
+	 * @param fPercent the percentage
+	 * @return the product length
+	 */
+	public Length multiply(float fPercent) {
+		if (bZero) { return this; }
+		return new Length(fPercent*fValue/100,sUnit);
+	}
+	
+	/** Convert this length to px assuming 96ppi; cf. the CSS spec (e.g. "0.1in" returns "9.6px").
+	 *  Exception: Never return less than 1px
+	 * 
+	 * @return the converted length
+	 */
+	public String toPx() {
+	    if (bZero) { return "0"; }
+	    float fPixels = 96.0F/getUpi()*fValue;
+	    if (Math.abs(fPixels)<0.01) {
+	        // Very small, treat as zero
+	        return "0";
+	    }
+	    else if (fPixels>0) {
+	        // Never return less that 1px
+	        return Float.toString(fPixels<1 ? 1 : fPixels)+"px";
+	    }
+	    else {
+	        // Or above -1px
+	        return Float.toString(fPixels>-1 ? -1 : fPixels)+"px";
+	    }
+	}
+
+	/** Get the string representation of this length
+	 * 
+	 * @return the length as a string (e.g. "17.5cm")
+	 */
+	@Override public String toString() {
+		if (sLength!=null) {
+			return sLength;
+		}
+		if (sResult==null) {
+			sResult = Float.toString(fValue)+sUnit;
+		}
+		return sResult;
+	}
+
+	// Return units per inch for some unit
+	static final float getUpi(String sUnit) {
+	    if ("in".equals(sUnit)) { return 1.0F; }
+	    else if ("mm".equals(sUnit)) { return 25.4F; }
+	    else if ("cm".equals(sUnit)) { return 2.54F; }
+	    else if ("pc".equals(sUnit)) { return 6F; }
+	    else { return 72; } // pt or unknown
+	}
+
+}
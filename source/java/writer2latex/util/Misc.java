@@ -463,6 +463,10 @@ public class Misc{
     }
 
 	public static final int getPosInteger(String sInteger, int nDefault){
+	    if (sInteger==null || sInteger.length()==0) {
+	        // Typically a missing attribute, avoid the costly exception
+	        return nDefault;
+	    }
 	    int n;
 	    try {
 	        n=Integer.parseInt(sInteger);
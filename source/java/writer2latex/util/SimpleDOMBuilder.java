@@ -27,7 +27,6 @@
 package writer2latex.util;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.DOMImplementation;
@@ -38,10 +37,27 @@ import org.w3c.dom.Element;
 /** This class provides a simple way to create and populate a DOM tree in logical order
  */
 public class SimpleDOMBuilder {
+	private boolean bCompact;
 	private Document dom=null;
 	private Element currentElement=null;
 	private StringBuilder charBuffer=new StringBuilder();
 	
+	/** Create a new <code>SimpleDOMBuilder</code> which builds a standard DOM tree
+	 */
+	public SimpleDOMBuilder() {
+		this(false);
+	}
+	
+	/** Create a new <code>SimpleDOMBuilder</code>
+	 * 
+	 * @param bCompact true if a compact DOM tree should be built. A compact DOM tree uses considerably less
+	 * memory, but only supports element and text nodes, does not support namespaces and only supports simple
+	 * modifications.
+	 */
+	public SimpleDOMBuilder(boolean bCompact) {
+		this.bCompact = bCompact;
+	}
+	
 	/**
 	 * Append an element to the current element and set this new element to be the current element.
 	 * If there is no current element, a new DOM tree will be created (discarding the current DOM tree if any)
@@ -55,11 +71,15 @@ public class SimpleDOMBuilder {
 			flushCharacters();
 			currentElement = (Element) currentElement.appendChild(dom.createElement(sTagName));
 		}
+		else if (bCompact) {
+			dom = new CompactDocument(sTagName);
+			currentElement = dom.getDocumentElement();
+		}
 		else {
-	        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 			try {
-		        DocumentBuilder builder = factory.newDocumentBuilder();
+		        DocumentBuilder builder = XMLParserPool.getDocumentBuilder();
 		        DOMImplementation domImpl = builder.getDOMImplementation();
+		        XMLParserPool.releaseDocumentBuilder(builder);
 		        DocumentType doctype = domImpl.createDocumentType(sTagName, "", ""); 
 		        dom = domImpl.createDocument("",sTagName,doctype);
 		        currentElement = dom.getDocumentElement();
@@ -70,6 +90,20 @@ public class SimpleDOMBuilder {
 		return true;
 	}
 
+	/**
+	 * Continue populating an existing DOM tree. Subsequent elements and characters will be appended to
+	 * the given element, which becomes the current element.
+	 *
+	 * @param element the element to append to
+	 */
+	public void appendTo(Element element) {
+		if (currentElement!=null) {
+			flushCharacters();
+		}
+		dom = element.getOwnerDocument();
+		currentElement = element;
+	}
+
 	/**
 	 * Set the current element to the parent of the current element
 	 * @return true on success, false if there is no current element to end
@@ -82,6 +116,9 @@ public class SimpleDOMBuilder {
 			}
 			else { // Back at document element: Finished populating the DOM tree
 				currentElement=null;
+				if (bCompact) {
+					((CompactDocument) dom).trimAll();
+				}
 			}
 			return true;
 		}
@@ -116,6 +153,22 @@ public class SimpleDOMBuilder {
 		return false;
 	}
 	
+	/**
+	 * Add characters to the currentElement. The actual writing of characters to the DOM is delayed until the
+	 * <code>startElement</code> or <code>endElement</code> methods are invoked
+	 * @param characters an array containing the characters
+	 * @param nStart the start position in the array
+	 * @param nLength the number of characters
+	 * @return true on success, false if there is no current element
+	 */
+	public boolean characters(char[] characters, int nStart, int nLength) {
+		if (currentElement!=null) {
+			charBuffer.append(characters,nStart,nLength);
+			return true;
+		}
+		return false;
+	}
+	
 	private void flushCharacters() {
 		if (charBuffer.length()>0) {
 			currentElement.appendChild(dom.createTextNode(charBuffer.toString()));
@@ -29,12 +29,14 @@ package writer2latex.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -54,48 +56,222 @@ public class SimpleXMLParser extends DefaultHandler {
 	 * @throws SAXException if an error occurs parsing the stream
 	 */
 	public static Document parse(InputStream is) throws IOException, SAXException {
-		SAXParserFactory factory=SAXParserFactory.newInstance();
-		
-		factory.setValidating(false);
-		SimpleXMLParser handler = new SimpleXMLParser();
+		return parse(is,false);
+	}
+
+	/** Static method to parse an XML input stream into a DOM tree
+	 * 
+	 * @param is the input stream to parse
+	 * @param bCompact true if a compact DOM tree should be created (see {@link SimpleDOMBuilder#SimpleDOMBuilder(boolean)})
+	 * @return a DOM tree of the document
+	 * @throws IOException if an error occurs reading the input stream
+	 * @throws SAXException if an error occurs parsing the stream
+	 */
+	public static Document parse(InputStream is, boolean bCompact) throws IOException, SAXException {
+		SimpleXMLParser handler = new SimpleXMLParser(bCompact);
+		return parse(is,handler) ? handler.getDOM() : null;
+	}
+
+	/** Static method to parse an XML input stream into a DOM tree, leaving out the children of an element.
+	 *  This is used to read the skeleton of a large document, the children can be read afterwards using
+	 *  {@link #parse(InputStream, Element, ElementHandler)}. Only the first occurrence of the element is
+	 *  handled this way.
+	 * 
+	 * @param is the input stream to parse
+	 * @param bCompact true if a compact DOM tree should be created (see {@link SimpleDOMBuilder#SimpleDOMBuilder(boolean)})
+	 * @param sSplitElement the name of the element which should be created without children
+	 * @return a DOM tree of the document
+	 * @throws IOException if an error occurs reading the input stream
+	 * @throws SAXException if an error occurs parsing the stream
+	 */
+	public static Document parse(InputStream is, boolean bCompact, String sSplitElement) throws IOException, SAXException {
+		SimpleXMLParser handler = new SimpleXMLParser(bCompact);
+		handler.sSplitElement = sSplitElement;
+		return parse(is,handler) ? handler.getDOM() : null;
+	}
+	
+	/** Static method to read the children of an element from an XML input stream one at a time. The element
+	 *  must be the (empty) split element of a DOM tree created by {@link #parse(InputStream, boolean, String)}
+	 *  from the same XML stream. Each child is appended to the element, and passed to the handler as soon
+	 *  as it has been read. Text between the children is ignored. The handler may remove the children from the
+	 *  DOM tree to conserve memory.
+	 * 
+	 * @param is the input stream to parse
+	 * @param element the element to receive the children
+	 * @param elementHandler the handler to receive the children
+	 * @throws IOException if an error occurs reading the input stream, or if the handler fails
+	 * @throws SAXException if an error occurs parsing the stream
+	 */
+	public static void parse(InputStream is, Element element, ElementHandler elementHandler) throws IOException, SAXException {
+		SimpleXMLParser handler = new SimpleXMLParser(false);
+		handler.sSplitElement = element.getTagName();
+		handler.target = element;
+		handler.elementHandler = elementHandler;
+		parse(is,handler);
+	}
+	
+	/** Static method to parse an XML input stream using a given parser (which may be a subclass of this class)
+	 * 
+	 * @param is the input stream to parse
+	 * @param handler the parser
+	 * @return true on success, false if no SAX parser could be created
+	 * @throws IOException if an error occurs reading the input stream
+	 * @throws SAXException if an error occurs parsing the stream
+	 */
+	protected static boolean parse(InputStream is, SimpleXMLParser handler) throws IOException, SAXException {
 		try {
-			SAXParser saxParser = factory.newSAXParser();
-			saxParser.parse(is,handler);
-			return handler.getDOM();
+			SAXParser saxParser = XMLParserPool.getSAXParser();
+			try {
+				saxParser.parse(is,handler);
+			}
+			catch (SAXException e) {
+				// An exception from the element handler is passed on as is
+				if (e.getException() instanceof IOException) {
+					throw (IOException) e.getException();
+				}
+				throw e;
+			}
+			finally {
+				XMLParserPool.releaseSAXParser(saxParser);
+			}
+			return true;
 		}
 		catch (ParserConfigurationException e) {
 			System.err.println("Oops - failed to get XML parser!?");
 			e.printStackTrace();
 		}
-		return null;
+		return false;
 	}
 
-	private SimpleDOMBuilder builder = new SimpleDOMBuilder();
+	// Attribute values longer than this are not shared
+	private static final int MAX_SYMBOL_LENGTH = 32;
+	
+	// Limit the size of the symbol table (for documents with many unique values such as ids)
+	private static final int MAX_SYMBOL_COUNT = 16384;
+	
+	private SimpleDOMBuilder builder;
+	
+	// The element which is read without children, or null to read the complete document
+	private String sSplitElement = null;
+	
+	// The element to receive the children of the split element, and the handler to pass them to
+	private Element target = null;
+	private ElementHandler elementHandler = null;
+	
+	// The current depth within the split element, or -1 outside the split element
+	private int nSplitDepth = -1;
+	private boolean bSplitDone = false;
+	
+	// Symbol table to share names and attribute values. ODF repeats the same element and attribute
+	// names and style names many times, so this saves memory and allows identity comparison of strings
+	private Map<String,String> symbols = new HashMap<String,String>();
+	
+	/** Create a new <code>SimpleXMLParser</code> which creates a standard DOM tree
+	 */
+	public SimpleXMLParser() {
+		this(false);
+	}
+	
+	/** Create a new <code>SimpleXMLParser</code>
+	 * 
+	 * @param bCompact true if a compact DOM tree should be created (see {@link SimpleDOMBuilder#SimpleDOMBuilder(boolean)})
+	 */
+	public SimpleXMLParser(boolean bCompact) {
+		builder = new SimpleDOMBuilder(bCompact);
+	}
 	
 	public org.w3c.dom.Document getDOM() {
 		return builder.getDOM();
 	}
 	
+	/** Get the builder used to create the DOM tree
+	 * 
+	 * @return the builder
+	 */
+	protected SimpleDOMBuilder getBuilder() {
+		return builder;
+	}
+	
 	// We don't need - and in fact should avoid - any external entities
 	@Override public InputSource resolveEntity(String publicID, String systemID) throws SAXException {
 		return new InputSource(new StringReader(""));
 	}
 	
 	@Override public void startElement(String nameSpace, String localName, String qName, Attributes attributes){
-		builder.startElement(qName);
+		if (nSplitDepth>=0) {
+			// Inside the split element: Skip the content or read a child
+			nSplitDepth++;
+			if (target==null) { return; }
+		}
+		else if (!bSplitDone && qName.equals(sSplitElement)) {
+			nSplitDepth = 0;
+			if (target!=null) {
+				// The children are appended to the existing element
+				builder.appendTo(target);
+				return;
+			}
+		}
+		else if (target!=null) {
+			// Outside the split element there is nothing to read
+			return;
+		}
+		builder.startElement(getSymbol(qName));
 		int nLen = attributes.getLength();
 		for (int i=0;i<nLen;i++) {
-			builder.setAttribute(attributes.getQName(i), attributes.getValue(i));
+			String sValue = attributes.getValue(i);
+			if (sValue.length()<=MAX_SYMBOL_LENGTH) {
+				sValue = getSymbol(sValue);
+			}
+			builder.setAttribute(getSymbol(attributes.getQName(i)), sValue);
 		}
 	}
 	
-	@Override public void endElement(String nameSpace, String localName, String qName){
+	@Override public void endElement(String nameSpace, String localName, String qName) throws SAXException {
+		if (nSplitDepth==0) {
+			// End of the split element
+			nSplitDepth = -1;
+			bSplitDone = true;
+			if (target!=null) { return; }
+		}
+		else if (nSplitDepth>0) {
+			nSplitDepth--;
+			if (target==null) { return; }
+			builder.endElement();
+			if (nSplitDepth==0) {
+				// Finished reading a child
+				try {
+					elementHandler.handleElement((Element) target.getLastChild());
+				}
+				catch (IOException e) {
+					throw new SAXException(e);
+				}
+			}
+			return;
+		}
+		else if (target!=null) {
+			return;
+		}
 		builder.endElement();
 	}
 
-	@Override public void characters(char[] characters, int nStart, int nEnd) throws SAXException {
-		builder.characters(new String(characters,nStart,nEnd));
-		
+	@Override public void characters(char[] characters, int nStart, int nLength) throws SAXException {
+		if (target!=null ? nSplitDepth>0 : nSplitDepth<0) {
+			builder.characters(characters,nStart,nLength);
+		}
+	}
+	
+	// Get the shared instance of a string
+	private String getSymbol(String s) {
+		String sSymbol = symbols.get(s);
+		if (sSymbol==null) {
+			if (symbols.size()>=MAX_SYMBOL_COUNT) {
+				return s;
+			}
+			// Use the JVM wide instance to share with string constants (such as those in XMLString)
+			sSymbol = s.intern();
+			symbols.put(sSymbol, sSymbol);
+		}
+		return sSymbol;
 	}
 
 }
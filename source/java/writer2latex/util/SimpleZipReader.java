@@ -26,21 +26,65 @@
 
 package writer2latex.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
+/** This class provides access to the entries of a ZIP file. If the ZIP file is read from a stream,
+ *  all entries are inflated up front. Entries are kept in memory until a memory budget is exhausted;
+ *  entries which do not fit within the budget are spooled to temporary files.
+ *  If the ZIP file is read from a file, only the central directory is read, and each entry is inflated
+ *  when it is requested.
+ */
 public class SimpleZipReader {
 
     private final static int BUFFERSIZE = 1024;
+    
+    // The largest array we attempt to allocate for an entry
+    private final static int MAX_ARRAY_SIZE = Integer.MAX_VALUE-8;
 
+    // Entries read from a stream
     private Map<String,byte[]> entries = new HashMap<String,byte[]>();
+    
+    // Entries read from a stream, which have been spooled to temporary files
+    private Map<String,File> spooledEntries = new HashMap<String,File>();
+    
+    // The number of bytes that may be used for entries in memory, and the number of bytes currently used
+    private long nMemoryBudget = Long.MAX_VALUE;
+    private long nMemoryUsed = 0;
+    
+    // Random access to the entries of a file
+    private File file = null;
+    private ZipFile zipFile = null;
+    private Set<String> usedEntries = new HashSet<String>();
 
-
+    /** Define the number of bytes that may be used to hold the entries of a ZIP file read from a stream.
+     *  When the budget is exhausted, the remaining entries are spooled to temporary files. The temporary
+     *  files are deleted when the entries are read with {@link #getEntry(String)} or removed with
+     *  {@link #removeEntry(String)}, and the remaining files are deleted by {@link #dispose()}.
+     *  The budget has no effect on a ZIP file read from a file, where the entries are always inflated on demand.
+     *
+     *  @param nBytes the budget in bytes, or a negative number to keep all entries in memory (the default)
+     */
+    public void setMemoryBudget(long nBytes) {
+    	nMemoryBudget = nBytes<0 ? Long.MAX_VALUE : nBytes;
+    }
+    
     /** Read a zipped stream
      *
      *  @param  is  <code>InputStream</code> to read
@@ -51,18 +95,75 @@ public class SimpleZipReader {
         ZipInputStream zis = new ZipInputStream(is);
         ZipEntry entry = null;
         while ((entry=zis.getNextEntry())!=null) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            int nLen = 0;
-            byte buffer[] = new byte[BUFFERSIZE];
-            while ((nLen = zis.read(buffer)) > 0) {
-                baos.write(buffer, 0, nLen);
+            storeEntry(entry, zis);
+        }
+        zis.close();
+    }
+    
+    /** Read selected entries from a zipped stream. The stream is only read until all the
+     *  requested entries have been found.
+     *
+     *  @param  is  <code>InputStream</code> to read
+     *  @param  names  the names (paths) of the entries to read
+     *
+     *  @throws  IOException  if an I/O error occurs
+     */
+    public void read(InputStream is, Set<String> names) throws IOException {
+        ZipInputStream zis = new ZipInputStream(is);
+        ZipEntry entry = null;
+        int nCount = names.size();
+        while (nCount>0 && (entry=zis.getNextEntry())!=null) {
+            if (names.contains(entry.getName())) {
+                storeEntry(entry, zis);
+                nCount--;
             }
-            byte bytes[] = baos.toByteArray();
-            entries.put(entry.getName(), bytes);
         }
         zis.close();
     }
     
+    /** Read a ZIP file. Only the central directory is read by this method, the entries are
+     *  inflated on demand by {@link #getEntry(String)}
+     *
+     *  @param  file  the <code>File</code> to read
+     *
+     *  @throws  IOException  if an I/O error occurs, or if the file is not a ZIP file
+     */
+    public void read(File file) throws IOException {
+    	close();
+    	zipFile = new ZipFile(file);
+    	this.file = file;
+    }
+    
+    /** Release the file handle held by this <code>SimpleZipReader</code>, if any. If more entries are
+     *  requested afterwards, the ZIP file is opened again only while each entry is read.
+     */
+    public void close() {
+    	if (zipFile!=null) {
+    		try {
+    			zipFile.close();
+    		}
+    		catch (IOException e) {
+    			// Nothing to do about that
+    		}
+    		zipFile = null;
+    	}
+    }
+    
+    /** Release all resources held by this <code>SimpleZipReader</code>. The file handle is released, and all
+     *  entries are removed, deleting any temporary files. No entries can be read after calling this method.
+     */
+    public void dispose() {
+    	close();
+    	file = null;
+    	usedEntries.clear();
+    	entries.clear();
+    	nMemoryUsed = 0;
+    	for (File spoolFile : spooledEntries.values()) {
+    		spoolFile.delete();
+    	}
+    	spooledEntries.clear();
+    }
+    
     /** Get an entry from the ZIP file. Getting should be taken quite literally here:
      *  You can only get an entry once: The <code>SimpleZipReader</code> removes the entry from the
      *  collection when this method is called (memory optimization).
@@ -70,15 +171,220 @@ public class SimpleZipReader {
      * @param   sName    the name (path) of the ZIP entry
      *
      * @return  a byte array with the contents of the entry, or null if the entry does not exist
+     * 
+     * @throws  IOException  if an I/O error occurs
      */
-    public byte[] getEntry(String sName) {
+    public byte[] getEntry(String sName) throws IOException {
+    	if (file!=null) {
+    		return getFileEntry(sName);
+    	}
     	if (entries.containsKey(sName)) {
-    		byte[] bytes = entries.get(sName);
-    		entries.remove(sName);
+    		byte[] bytes = entries.remove(sName);
+    		nMemoryUsed-=bytes.length;
     		return bytes;
     	}
+    	if (spooledEntries.containsKey(sName)) {
+    		File spoolFile = spooledEntries.remove(sName);
+    		try {
+    			InputStream is = new FileInputStream(spoolFile);
+    			try {
+    				return readEntry(is);
+    			}
+    			finally {
+    				is.close();
+    			}
+    		}
+    		finally {
+    			spoolFile.delete();
+    		}
+    	}
     	return null;
     }
-        
+    
+    /** Get an entry from the ZIP file as a stream. In contrast to {@link #getEntry(String)}, the entry
+     *  is not removed from the collection, so this method may be used to read the same entry several times.
+     *
+     * @param   sName    the name (path) of the ZIP entry
+     *
+     * @return  an <code>InputStream</code> with the contents of the entry, or null if the entry does not exist
+     * 
+     * @throws  IOException  if an I/O error occurs
+     */
+    public InputStream getEntryStream(String sName) throws IOException {
+    	if (file!=null) {
+    		if (!usedEntries.contains(sName)) {
+    			if (zipFile!=null) {
+    				ZipEntry entry = zipFile.getEntry(sName);
+    				return entry!=null ? zipFile.getInputStream(entry) : null;
+    			}
+    			// The reader has been closed, so the stream gets a ZIP file of its own
+    			final ZipFile privateZipFile = new ZipFile(file);
+    			ZipEntry entry = privateZipFile.getEntry(sName);
+    			if (entry!=null) {
+    				try {
+    					return new FilterInputStream(privateZipFile.getInputStream(entry)) {
+    						@Override public void close() throws IOException {
+    							try {
+    								super.close();
+    							}
+    							finally {
+    								privateZipFile.close();
+    							}
+    						}
+    					};
+    				}
+    				catch (IOException e) {
+    					privateZipFile.close();
+    					throw e;
+    				}
+    			}
+    			privateZipFile.close();
+    		}
+    		return null;
+    	}
+    	byte[] bytes = entries.get(sName);
+    	if (bytes!=null) {
+    		return new ByteArrayInputStream(bytes);
+    	}
+    	File spoolFile = spooledEntries.get(sName);
+    	return spoolFile!=null ? new FileInputStream(spoolFile) : null;
+    }
+    
+    /** Remove an entry without reading it. After this, {@link #getEntry(String)} will return null for the entry.
+     * 
+     * @param sName the name (path) of the ZIP entry
+     */
+    public void removeEntry(String sName) {
+    	if (file!=null) {
+    		usedEntries.add(sName);
+    	}
+    	else if (entries.containsKey(sName)) {
+    		nMemoryUsed-=entries.remove(sName).length;
+    	}
+    	else if (spooledEntries.containsKey(sName)) {
+    		spooledEntries.remove(sName).delete();
+    	}
+    }
+    
+    /** Remove all entries except the given ones. This releases the memory and temporary files used by
+     *  entries which will not be needed. A ZIP file read from a file holds no entries, so in this case
+     *  the method has no effect.
+     * 
+     * @param names the names (paths) of the ZIP entries to keep
+     */
+    public void retainEntries(Set<String> names) {
+    	Iterator<Map.Entry<String,byte[]>> iter = entries.entrySet().iterator();
+    	while (iter.hasNext()) {
+    		Map.Entry<String,byte[]> entry = iter.next();
+    		if (!names.contains(entry.getKey())) {
+    			nMemoryUsed-=entry.getValue().length;
+    			iter.remove();
+    		}
+    	}
+    	Iterator<Map.Entry<String,File>> spoolIter = spooledEntries.entrySet().iterator();
+    	while (spoolIter.hasNext()) {
+    		Map.Entry<String,File> entry = spoolIter.next();
+    		if (!names.contains(entry.getKey())) {
+    			entry.getValue().delete();
+    			spoolIter.remove();
+    		}
+    	}
+    }
+    
+    // Inflate an entry from the ZIP file
+    private byte[] getFileEntry(String sName) throws IOException {
+    	if (!usedEntries.contains(sName)) {
+    		// If the reader has been closed, the ZIP file is opened only while the entry is read
+    		ZipFile source = zipFile!=null ? zipFile : new ZipFile(file);
+    		try {
+    			ZipEntry entry = source.getEntry(sName);
+    			if (entry!=null) {
+    				InputStream is = source.getInputStream(entry);
+    				try {
+    					byte[] bytes = readEntry(is);
+    					// Only mark the entry as used once it has been read successfully
+    					usedEntries.add(sName);
+    					return bytes;
+    				}
+    				finally {
+    					is.close();
+    				}
+    			}
+    		}
+    		finally {
+    			if (source!=zipFile) {
+    				source.close();
+    			}
+    		}
+    	}
+    	return null;
+    }
+    
+    // Store an entry from a zipped stream in memory or in a temporary file, depending on the memory budget
+    private void storeEntry(ZipEntry entry, InputStream is) throws IOException {
+    	// If the ZIP file contains several entries with the same name, the last one replaces the others
+    	byte[] oldBytes = entries.remove(entry.getName());
+    	if (oldBytes!=null) {
+    		nMemoryUsed-=oldBytes.length;
+    	}
+    	File oldFile = spooledEntries.remove(entry.getName());
+    	if (oldFile!=null) {
+    		oldFile.delete();
+    	}
+    	long nLimit = Math.min(nMemoryBudget-nMemoryUsed, MAX_ARRAY_SIZE);
+    	long nSize = entry.getSize(); // -1 if the size is unknown
+    	byte[] chunk = new byte[BUFFERSIZE];
+    	if (nSize>nLimit) {
+    		spoolEntry(entry.getName(), chunk, 0, chunk, 0, is);
+    		return;
+    	}
+    	byte[] data = new byte[(int) (nSize>=0 ? nSize : Math.min(BUFFERSIZE, nLimit))];
+    	int nLen = 0;
+    	int nRead;
+    	while ((nRead = is.read(chunk)) > 0) {
+    		if (nLen+nRead>nLimit) {
+    			// Over budget, spool the data read so far and the rest of the entry
+    			spoolEntry(entry.getName(), data, nLen, chunk, nRead, is);
+    			return;
+    		}
+    		if (nLen+nRead>data.length) {
+    			data = Arrays.copyOf(data, (int) Math.min(Math.max(2L*data.length, nLen+nRead), nLimit));
+    		}
+    		System.arraycopy(chunk, 0, data, nLen, nRead);
+    		nLen+=nRead;
+    	}
+    	entries.put(entry.getName(), nLen<data.length ? Arrays.copyOf(data, nLen) : data);
+    	nMemoryUsed+=nLen;
+    }
+    
+    // Write an entry to a temporary file, starting with the data already read
+    private void spoolEntry(String sName, byte[] data, int nLen, byte[] chunk, int nRead, InputStream is)
+    		throws IOException {
+    	File spoolFile = File.createTempFile("w2l", ".tmp");
+    	OutputStream os = new FileOutputStream(spoolFile);
+    	try {
+    		os.write(data, 0, nLen);
+    		do {
+    			os.write(chunk, 0, nRead);
+    		} while ((nRead = is.read(chunk)) > 0);
+    	}
+    	catch (IOException e) {
+    		os.close();
+    		spoolFile.delete();
+    		throw e;
+    	}
+    	os.close();
+    	spooledEntries.put(sName, spoolFile);
+    }
+    
+    private byte[] readEntry(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int nLen = 0;
+        byte buffer[] = new byte[BUFFERSIZE];
+        while ((nLen = is.read(buffer)) > 0) {
+            baos.write(buffer, 0, nLen);
+        }
+        return baos.toByteArray();
+    }
 
 }
@@ -0,0 +1,128 @@
+/************************************************************************
+ *
+ *  XMLParserPool.java
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License version 2.1, as published by the Free Software Foundation.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *  MA  02111-1307  USA
+ *
+ *  Copyright: 2026 by the Writer2LaTeX contributors
+ *
+ *  All Rights Reserved.
+ *
+ *  Version 1.6.1 (2026-10-17)
+ *
+ */
+
+package writer2latex.util;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.SAXException;
+
+/** This class provides reusable XML parsers. Creating a parser implies a service lookup and the
+ *  construction of the parser, which is costly if many small XML files are parsed.
+ *  Each thread keeps one idle <code>SAXParser</code> and one idle <code>DocumentBuilder</code>, which are
+ *  reset when returned to the pool. A parser should only be used by the thread that got it,
+ *  and should be released when the parsing is finished.
+ */
+public final class XMLParserPool {
+
+	private static final ThreadLocal<SAXParserFactory> saxParserFactory = new ThreadLocal<SAXParserFactory>();
+	private static final ThreadLocal<SAXParser> saxParser = new ThreadLocal<SAXParser>();
+
+	private static final ThreadLocal<DocumentBuilderFactory> documentBuilderFactory = new ThreadLocal<DocumentBuilderFactory>();
+	private static final ThreadLocal<DocumentBuilder> documentBuilder = new ThreadLocal<DocumentBuilder>();
+
+	private XMLParserPool() {
+	}
+
+	/** Get a non-validating <code>SAXParser</code> for the current thread
+	 *
+	 * @return the parser
+	 * @throws ParserConfigurationException if the parser cannot be created
+	 * @throws SAXException if the parser cannot be created
+	 */
+	public static SAXParser getSAXParser() throws ParserConfigurationException, SAXException {
+		SAXParser parser = saxParser.get();
+		if (parser!=null) {
+			// Take the parser from the pool (it may be required again before it is released)
+			saxParser.set(null);
+			return parser;
+		}
+		SAXParserFactory factory = saxParserFactory.get();
+		if (factory==null) {
+			factory = SAXParserFactory.newInstance();
+			factory.setValidating(false);
+			saxParserFactory.set(factory);
+		}
+		return factory.newSAXParser();
+	}
+
+	/** Return a <code>SAXParser</code> to the pool of the current thread
+	 *
+	 * @param parser the parser, which must have been obtained using {@link #getSAXParser()} on this thread
+	 */
+	public static void releaseSAXParser(SAXParser parser) {
+		if (parser!=null && saxParser.get()==null) {
+			try {
+				parser.reset();
+				saxParser.set(parser);
+			}
+			catch (UnsupportedOperationException e) {
+				// Cannot reuse this parser
+			}
+		}
+	}
+
+	/** Get a <code>DocumentBuilder</code> for the current thread
+	 *
+	 * @return the document builder
+	 * @throws ParserConfigurationException if the document builder cannot be created
+	 */
+	public static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+		DocumentBuilder builder = documentBuilder.get();
+		if (builder!=null) {
+			documentBuilder.set(null);
+			return builder;
+		}
+		DocumentBuilderFactory factory = documentBuilderFactory.get();
+		if (factory==null) {
+			factory = DocumentBuilderFactory.newInstance();
+			documentBuilderFactory.set(factory);
+		}
+		return factory.newDocumentBuilder();
+	}
+
+	/** Return a <code>DocumentBuilder</code> to the pool of the current thread
+	 *
+	 * @param builder the document builder, which must have been obtained using {@link #getDocumentBuilder()}
+	 * on this thread
+	 */
+	public static void releaseDocumentBuilder(DocumentBuilder builder) {
+		if (builder!=null && documentBuilder.get()==null) {
+			try {
+				builder.reset();
+				documentBuilder.set(builder);
+			}
+			catch (UnsupportedOperationException e) {
+				// Cannot reuse this document builder
+			}
+		}
+	}
+
+}
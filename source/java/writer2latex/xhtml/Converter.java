@@ -74,6 +74,10 @@ public class Converter extends ConverterBase {
     public Config getConfig() { return config; }
     
     protected XhtmlConfig getXhtmlConfig() { return config; }
+    
+    @Override protected boolean compactDOM() { return config.compactDOM(); }
+    
+    @Override protected long memoryBudget() { return config.getMemoryBudget(); }
 
     // The locale
     private L10n l10n;
@@ -41,7 +41,7 @@ import writer2latex.util.Misc;
 
 public class XhtmlConfig extends writer2latex.base.ConfigBase {
     // Implement configuration methods
-    protected int getOptionCount() { return 62; }
+    protected int getOptionCount() { return 64; }
     protected String getDefaultConfigPath() { return "/writer2latex/xhtml/config/"; }
 	
     // Override setOption: To be backwards compatible, we must accept options
@@ -162,6 +162,8 @@ public class XhtmlConfig extends writer2latex.base.ConfigBase {
     private static final int INDEX_LINKS = 59;
     private static final int EXTERNAL_TOC_DEPTH_MARKS = 60;
     private static final int AVOID_HTML5 = 61;
+    private static final int COMPACT_DOM = 62;
+    private static final int MEMORY_BUDGET = 63;
 
     protected ComplexOption xheading = addComplexOption("heading-map");
     protected ComplexOption xpar = addComplexOption("paragraph-map");
@@ -311,6 +313,13 @@ public class XhtmlConfig extends writer2latex.base.ConfigBase {
         	}
         };
         options[AVOID_HTML5] = new BooleanOption("avoid_html5","false");
+        options[COMPACT_DOM] = new BooleanOption("compact_dom","false");
+        options[MEMORY_BUDGET] = new IntegerOption("memory_budget","-1") {
+            public void setString(String sValue) {
+                super.setString(sValue);
+                nValue = "0".equals(sValue) ? 0 : Misc.getPosInteger(sValue,-1);
+            }
+        };
     }
     
 	protected void readInner(Element elm) {
@@ -456,6 +465,8 @@ public class XhtmlConfig extends writer2latex.base.ConfigBase {
     public boolean indexLinks() { return ((BooleanOption) options[INDEX_LINKS]).getValue(); }
     public int externalTocDepthMarks() { return ((IntegerOption) options[EXTERNAL_TOC_DEPTH_MARKS]).getValue(); }
     public boolean avoidHtml5() { return ((BooleanOption) options[AVOID_HTML5]).getValue(); }
+    public boolean compactDOM() { return ((BooleanOption) options[COMPACT_DOM]).getValue(); }
+    public int getMemoryBudget() { return ((IntegerOption) options[MEMORY_BUDGET]).getValue(); }
 	
     public XhtmlStyleMap getXParStyleMap() { return getStyleMap(xpar); }
     public XhtmlStyleMap getXHeadingStyleMap() { return getStyleMap(xheading); }